@@ -0,0 +1,168 @@
+package com.loblaw.metrics.config;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.loblaw.metrics.service.CounterInfoService;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Admission control of the ingestion endpoints. A request is rejected with 429
+ * and Retry-After when more than maxInFlight ingestion requests are already
+ * being written (load shedding), when its client has used up its token bucket,
+ * or when the global token bucket is used up, in which case the client token
+ * taken is returned. Every rejection is counted.
+ *
+ * Runs before every other filter so rejected bodies are never decoded.
+ */
+@Slf4j
+public class AdmissionControlFilter implements WebFilter, Ordered {
+	// Bucket shared by new clients once maxClients are tracked
+	private static final String OVERFLOW_CLIENT = "*";
+	private static final String UNKNOWN_CLIENT = "unknown";
+
+	private final Set<String> paths;
+	private final TokenBucket globalBucket;
+	private final double clientRatePerS;
+	private final double clientBurst;
+	private final int maxClients;
+	private final int maxInFlight;
+	private final long retryAfterS;
+	private final CounterInfoService rejectedCounter;
+
+	private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * @param paths           - Set of the request paths admission applies to
+	 * @param globalRatePerS  - double representing the requests a second admitted
+	 *                        from all clients, 0 for no limit
+	 * @param globalBurst     - double representing the requests admitted at once
+	 *                        from all clients
+	 * @param clientRatePerS  - double representing the requests a second admitted
+	 *                        from a single client, 0 for no limit
+	 * @param clientBurst     - double representing the requests admitted at once
+	 *                        from a single client
+	 * @param maxClients      - int representing the clients given their own bucket
+	 * @param maxInFlight     - int representing the ingestion requests processed at
+	 *                        once before new ones are shed, 0 for no limit
+	 * @param retryAfterS     - long representing the Retry-After seconds of shed
+	 *                        requests
+	 * @param rejectedCounter - CounterInfoService counting rejected requests
+	 */
+	public AdmissionControlFilter(Set<String> paths, double globalRatePerS, double globalBurst,
+			double clientRatePerS, double clientBurst, int maxClients, int maxInFlight, long retryAfterS,
+			CounterInfoService rejectedCounter) {
+		this.paths = paths;
+		this.globalBucket = globalRatePerS > 0 ? new TokenBucket(globalRatePerS, globalBurst) : null;
+		this.clientRatePerS = clientRatePerS;
+		this.clientBurst = clientBurst;
+		this.maxClients = maxClients;
+		this.maxInFlight = maxInFlight;
+		this.retryAfterS = retryAfterS;
+		this.rejectedCounter = rejectedCounter;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		String path = request.getPath().pathWithinApplication().value();
+
+		if (!paths.contains(path))
+			return chain.filter(exchange);
+
+		if (maxInFlight > 0 && inFlight.incrementAndGet() > maxInFlight) {
+			inFlight.decrementAndGet();
+			return reject(exchange, path, retryAfterS, "ingestion queue is full");
+		}
+
+		long now = System.nanoTime();
+		String client = getClient(request);
+		TokenBucket clientBucket = clientRatePerS > 0 ? getClientBucket(client, now) : null;
+		long waitNs = clientBucket != null ? clientBucket.tryAcquire(now) : 0;
+		String reason = "rate limit of client " + client + " reached";
+
+		if (waitNs == 0 && globalBucket != null) {
+			waitNs = globalBucket.tryAcquire(now);
+			reason = "global rate limit reached";
+
+			// A request the global limit rejects does not use up its client's rate
+			if (waitNs > 0 && clientBucket != null)
+				clientBucket.refund(1);
+		}
+
+		if (waitNs > 0) {
+			if (maxInFlight > 0)
+				inFlight.decrementAndGet();
+			return reject(exchange, path, TimeUnit.NANOSECONDS.toSeconds(waitNs - 1) + 1, reason);
+		}
+
+		if (maxInFlight <= 0)
+			return chain.filter(exchange);
+		return Mono.defer(() -> chain.filter(exchange)).doFinally(signal -> inFlight.decrementAndGet());
+	}
+
+	private TokenBucket getClientBucket(String client, long now) {
+		TokenBucket bucket = clientBuckets.get(client);
+		if (bucket != null)
+			return bucket;
+
+		// Buckets that are full again admit the same as a new bucket, so drop them
+		// to make room before sharing the overflow bucket
+		if (clientBuckets.size() >= maxClients)
+			clientBuckets.values().removeIf(idle -> idle.isFull(now));
+		if (clientBuckets.size() >= maxClients)
+			client = OVERFLOW_CLIENT;
+
+		return clientBuckets.computeIfAbsent(client, key -> new TokenBucket(clientRatePerS, clientBurst));
+	}
+
+	private String getClient(ServerHttpRequest request) {
+		InetSocketAddress remoteAddress = request.getRemoteAddress();
+
+		if (remoteAddress == null)
+			return UNKNOWN_CLIENT;
+		if (remoteAddress.getAddress() == null)
+			return remoteAddress.getHostString();
+		return remoteAddress.getAddress().getHostAddress();
+	}
+
+	private Mono<Void> reject(ServerWebExchange exchange, String path, long retryAfterS, String reason) {
+		rejectedCounter.incCounter();
+		log.warn("Rejected request to " + path + ", " + reason + " (RC: " + rejectedCounter.getInfo().getCounter()
+				+ ")");
+
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterS));
+		response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+
+		byte[] body = ("Too many requests, " + reason + ", retry after " + retryAfterS + " seconds")
+				.getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = response.bufferFactory().wrap(body);
+		return response.writeWith(Mono.just(buffer));
+	}
+}
@@ -0,0 +1,124 @@
+package com.loblaw.metrics.config;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Factory of the executors blocking collectors (health probes, JDBC queries)
+ * run on. Each subsystem gets its own executor bounded to a configured
+ * concurrency, backed either by a fixed pool of platform threads or, on a JVM
+ * that supports them, by virtual threads.
+ */
+@Slf4j
+public class CollectorExecutors {
+	private CollectorExecutors() {
+	}
+
+	/**
+	 * Create an executor running at most concurrency tasks at once
+	 *
+	 * @param name           - String representing the subsystem, used to name
+	 *                       threads
+	 * @param concurrency    - int representing the maximum number of tasks running
+	 *                       at once
+	 * @param virtualThreads - boolean representing whether to run tasks on virtual
+	 *                       threads when the JVM supports them
+	 * @return - an ExecutorService bounded to concurrency
+	 */
+	public static ExecutorService create(String name, int concurrency, boolean virtualThreads) {
+		if (virtualThreads) {
+			ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+
+			if (virtualExecutor != null) {
+				log.info("Running " + name + " collectors on virtual threads, limited to " + concurrency);
+				return new BoundedExecutorService(virtualExecutor, concurrency);
+			}
+			log.warn("Virtual threads are not supported by this JVM, running " + name
+					+ " collectors on platform threads");
+		}
+
+		log.info("Running " + name + " collectors on " + concurrency + " platform threads");
+		return Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory(name + "-"));
+	}
+
+	/**
+	 * Look up Executors.newVirtualThreadPerTaskExecutor, which only exists from
+	 * JDK 21, so the project keeps building for Java 8
+	 *
+	 * @return - an ExecutorService starting a virtual thread per task, or null when
+	 *         the JVM does not support virtual threads
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (ReflectiveOperationException e) {
+			log.error("Collector Executors : Reflection exception in newVirtualThreadPerTaskExecutor : {}",
+					e.toString(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * ExecutorService running tasks on delegate while holding one of a fixed
+	 * number of permits. Tasks waiting for a permit park their own (virtual)
+	 * thread rather than a platform thread.
+	 */
+	private static class BoundedExecutorService extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final Semaphore permits;
+
+		private BoundedExecutorService(ExecutorService delegate, int concurrency) {
+			this.delegate = delegate;
+			this.permits = new Semaphore(concurrency);
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			delegate.execute(() -> {
+				permits.acquireUninterruptibly();
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
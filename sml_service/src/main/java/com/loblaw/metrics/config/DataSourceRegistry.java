@@ -0,0 +1,124 @@
+package com.loblaw.metrics.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Named databases queries can run against. Each database has its own
+ * connection pool and its own executor bounding how many of its queries run at
+ * once, so slow queries on one database cannot hold connections or threads of
+ * another. Queries that do not name a database run against DEFAULT.
+ */
+@Slf4j
+public class DataSourceRegistry implements AutoCloseable {
+	public static final String DEFAULT = "default";
+
+	private final Map<String, Target> targets = new LinkedHashMap<>();
+
+	/**
+	 * @param name          - String representing the name queries use to target
+	 *                      dataSource
+	 * @param dataSource    - DataSource of the database
+	 * @param executor      - ExecutorService queries on the database run on
+	 * @param queryTimeoutS - Integer representing the statement timeout of queries
+	 *                      without their own, null for db.query-timeout-s
+	 * @param owned         - true if the registry closes dataSource and executor
+	 *                      on shutdown, false if they are managed elsewhere
+	 */
+	public void register(String name, DataSource dataSource, ExecutorService executor, Integer queryTimeoutS,
+			boolean owned) {
+		targets.put(name, new Target(new JdbcTemplate(dataSource), dataSource, executor, queryTimeoutS, owned));
+	}
+
+	/**
+	 * @param name - String representing a database name, null for DEFAULT
+	 * @return - true if a database is registered under name
+	 */
+	public boolean contains(String name) {
+		return targets.containsKey(resolve(name));
+	}
+
+	/**
+	 * @param name - String representing a database name, null for DEFAULT
+	 * @return - JdbcTemplate of the database
+	 */
+	public JdbcTemplate getJdbcTemplate(String name) {
+		return get(name).jdbcTemplate;
+	}
+
+	/**
+	 * @param name - String representing a database name, null for DEFAULT
+	 * @return - ExecutorService queries on the database run on
+	 */
+	public ExecutorService getExecutor(String name) {
+		return get(name).executor;
+	}
+
+	/**
+	 * @param name - String representing a database name, null for DEFAULT
+	 * @return - Integer representing the default statement timeout of the
+	 *         database, null if it has none of its own
+	 */
+	public Integer getQueryTimeoutS(String name) {
+		return get(name).queryTimeoutS;
+	}
+
+	public Set<String> getNames() {
+		return targets.keySet();
+	}
+
+	@Override
+	public void close() {
+		for (Map.Entry<String, Target> entry : targets.entrySet()) {
+			Target target = entry.getValue();
+			if (!target.owned)
+				continue;
+
+			target.executor.shutdown();
+			if (target.dataSource instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) target.dataSource).close();
+				} catch (Exception e) {
+					log.error("Data Source Registry : Close exception for " + entry.getKey() + " in close : {}",
+							e.toString(), e);
+				}
+			}
+		}
+	}
+
+	private Target get(String name) {
+		Target target = targets.get(resolve(name));
+		if (target == null)
+			throw new IllegalArgumentException("No datasource named " + name);
+		return target;
+	}
+
+	private String resolve(String name) {
+		return name == null || name.trim().isEmpty() ? DEFAULT : name.trim();
+	}
+
+	private static class Target {
+		private final JdbcTemplate jdbcTemplate;
+		private final DataSource dataSource;
+		private final ExecutorService executor;
+		private final Integer queryTimeoutS;
+		private final boolean owned;
+
+		private Target(JdbcTemplate jdbcTemplate, DataSource dataSource, ExecutorService executor,
+				Integer queryTimeoutS, boolean owned) {
+			this.jdbcTemplate = jdbcTemplate;
+			this.dataSource = dataSource;
+			this.executor = executor;
+			this.queryTimeoutS = queryTimeoutS;
+			this.owned = owned;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.loblaw.metrics.config;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decompress request bodies sent with Content-Encoding gzip to the paths given,
+ * inflating each chunk of the body as it arrives without blocking. The body
+ * fails with 413 once the maxBytes of its path have been inflated and with 400
+ * when it is not valid gzip.
+ */
+public class GzipRequestFilter implements WebFilter {
+	private static final String GZIP = "gzip";
+
+	private final Map<String, Long> maxBytesByPath;
+
+	/**
+	 * @param maxBytesByPath - Map of the request paths decompressed to the maximum
+	 *                       bytes inflated for each
+	 */
+	public GzipRequestFilter(Map<String, Long> maxBytesByPath) {
+		this.maxBytesByPath = maxBytesByPath;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		String contentEncoding = request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+		Long maxBytes = maxBytesByPath.get(request.getPath().pathWithinApplication().value());
+
+		if (maxBytes == null || contentEncoding == null || !GZIP.equalsIgnoreCase(contentEncoding.trim()))
+			return chain.filter(exchange);
+
+		ServerHttpRequest gzipRequest = new GzipRequestDecorator(request, maxBytes,
+				exchange.getResponse().bufferFactory());
+		return chain.filter(exchange.mutate().request(gzipRequest).build());
+	}
+
+	private static class GzipRequestDecorator extends ServerHttpRequestDecorator {
+		private final long maxBytes;
+		private final DataBufferFactory bufferFactory;
+		private final HttpHeaders headers;
+
+		private GzipRequestDecorator(ServerHttpRequest request, long maxBytes, DataBufferFactory bufferFactory) {
+			super(request);
+			this.maxBytes = maxBytes;
+			this.bufferFactory = bufferFactory;
+
+			// The inflated length is unknown and the body is no longer encoded
+			HttpHeaders decodedHeaders = new HttpHeaders();
+			decodedHeaders.putAll(request.getHeaders());
+			decodedHeaders.remove(HttpHeaders.CONTENT_ENCODING);
+			decodedHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+			this.headers = HttpHeaders.readOnlyHttpHeaders(decodedHeaders);
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			return Flux.defer(() -> {
+				GzipInflater inflater = new GzipInflater(maxBytes);
+
+				return super.getBody().<DataBuffer>handle((buffer, sink) -> {
+					byte[] inflated;
+					try {
+						inflated = inflater.inflate(buffer);
+					} finally {
+						DataBufferUtils.release(buffer);
+					}
+
+					if (inflated.length > 0)
+						sink.next(bufferFactory.wrap(inflated));
+				}).concatWith(Mono.fromRunnable(inflater::checkFinished)).doFinally(signal -> inflater.end());
+			});
+		}
+	}
+
+	/**
+	 * Inflates a gzip member fed a chunk at a time. The header is parsed once
+	 * enough of it has arrived and anything after the deflated data (the trailer)
+	 * is ignored.
+	 */
+	private static class GzipInflater {
+		private static final int FHCRC = 2;
+		private static final int FEXTRA = 4;
+		private static final int FNAME = 8;
+		private static final int FCOMMENT = 16;
+		private static final int CHUNK_BYTES = 8192;
+
+		private final Inflater inflater = new Inflater(true);
+		private final long maxBytes;
+
+		// Bytes received before the header is complete, null once it is parsed
+		private ByteArrayOutputStream header = new ByteArrayOutputStream();
+		private long bytesInflated = 0;
+
+		private GzipInflater(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		private byte[] inflate(DataBuffer buffer) {
+			byte[] input = new byte[buffer.readableByteCount()];
+			buffer.read(input);
+			int offset = 0;
+
+			if (header != null) {
+				header.write(input, 0, input.length);
+				input = header.toByteArray();
+				offset = getHeaderLength(input);
+				if (offset < 0)
+					return new byte[0];
+				header = null;
+			}
+
+			if (inflater.finished())
+				return new byte[0];
+
+			inflater.setInput(input, offset, input.length - offset);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[CHUNK_BYTES];
+
+			try {
+				while (!inflater.finished() && !inflater.needsInput()) {
+					int inflated = inflater.inflate(chunk);
+					if (inflated == 0 && inflater.needsDictionary())
+						throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid gzip request body");
+
+					bytesInflated += inflated;
+					if (bytesInflated > maxBytes)
+						throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+								"Gzip request body exceeds " + maxBytes + " bytes");
+					out.write(chunk, 0, inflated);
+				}
+			} catch (DataFormatException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid gzip request body", e);
+			}
+			return out.toByteArray();
+		}
+
+		private void checkFinished() {
+			if (!inflater.finished())
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Truncated gzip request body");
+		}
+
+		private void end() {
+			inflater.end();
+		}
+
+		/**
+		 * @param bytes - byte array starting with a gzip header
+		 * @return - int representing the length of the header, -1 when more bytes are
+		 *         needed to read it
+		 */
+		private int getHeaderLength(byte[] bytes) {
+			if (bytes.length < 10)
+				return -1;
+			if ((bytes[0] & 0xff) != 0x1f || (bytes[1] & 0xff) != 0x8b || bytes[2] != 8)
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Request body is not gzip");
+
+			int flags = bytes[3] & 0xff;
+			int pos = 10;
+
+			if ((flags & FEXTRA) != 0) {
+				if (bytes.length < pos + 2)
+					return -1;
+				pos += 2 + ((bytes[pos] & 0xff) | ((bytes[pos + 1] & 0xff) << 8));
+			}
+			if ((flags & FNAME) != 0)
+				pos = skipZeroTerminated(bytes, pos);
+			if (pos >= 0 && (flags & FCOMMENT) != 0)
+				pos = skipZeroTerminated(bytes, pos);
+			if (pos >= 0 && (flags & FHCRC) != 0)
+				pos += 2;
+
+			return pos >= 0 && pos <= bytes.length ? pos : -1;
+		}
+
+		private int skipZeroTerminated(byte[] bytes, int pos) {
+			while (pos < bytes.length) {
+				if (bytes[pos++] == 0)
+					return pos;
+			}
+			return -1;
+		}
+	}
+}
@@ -1,42 +1,72 @@
 package com.loblaw.metrics.config;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
 import javax.sql.DataSource;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.util.MimeType;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.loblaw.metrics.helper.EventDeduplicator;
+import com.loblaw.metrics.helper.HeartbeatRegistry;
 import com.loblaw.metrics.service.CounterInfoService;
 import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+import com.loblaw.metrics.shared.SmlSharedConstants;
 import com.loblaw.metrics.shared.util.FileUtil;
 import com.loblaw.metrics.shared.util.NumberUtil;
 import com.loblaw.metrics.shared.util.RestCallUtil;
 import com.loblaw.metrics.shared.util.ServerUtil;
 import com.loblaw.metrics.shared.util.StringUtil;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
 
 @Configuration
+@Slf4j
 public class SmlConfiguration {
 	private static final String ROLLING_APPENDER_LOGGER = "rolling-appender";
 	private static final String DATASOURCE_DRIVER = "datasource.driver";
 	private static final String DATASOURCE_URL = "datasource.url";
 	private static final String DATASOURCE_USERNAME = "datasource.username";
 	private static final String DATASOURCE_PASSWORD = "datasource.password";
+	private static final String DATASOURCE_POOL = "datasource.pool.";
+	private static final String DATASOURCES = "datasources.";
+	private static final MimeType SMILE_MIME_TYPE = new MimeType("application", "x-jackson-smile");
+	private static final MimeType SMILE_SUFFIX_MIME_TYPE = new MimeType("application", "*+x-jackson-smile");
 
 	@Autowired
 	Environment env;
@@ -47,6 +77,60 @@ public class SmlConfiguration {
 	@Value("${rest-template.timeout.connect}")
 	private Integer connectTimeoutMs;
 
+	@Value("${executor.virtual-threads:false}")
+	private boolean virtualThreads;
+
+	@Value("${executor.health.concurrency:16}")
+	private int healthConcurrency;
+
+	@Value("${executor.database.concurrency:${datasource.pool.max-size:4}}")
+	private int databaseConcurrency;
+
+	@Value("${executor.output.concurrency:2}")
+	private int outputConcurrency;
+
+	@Value("${datasources.total:0}")
+	private int datasourcesTotal;
+
+	@Value("${application.heartbeat.ttl-ms:120000}")
+	private long heartbeatTtlMs;
+
+	@Value("${application.heartbeat.max-applications:1000}")
+	private int heartbeatMaxApplications;
+
+	@Value("${application.heartbeat.max-body-bytes:1048576}")
+	private long heartbeatMaxBodyBytes;
+
+	@Value("${application.bulk.max-body-bytes:67108864}")
+	private long bulkMaxBodyBytes;
+
+	@Value("${application.dedup.window-ms:300000}")
+	private long dedupWindowMs;
+
+	@Value("${application.dedup.max-entries:100000}")
+	private int dedupMaxEntries;
+
+	@Value("${admission.global.rate-per-s:0}")
+	private double admissionGlobalRatePerS;
+
+	@Value("${admission.global.burst:0}")
+	private double admissionGlobalBurst;
+
+	@Value("${admission.client.rate-per-s:0}")
+	private double admissionClientRatePerS;
+
+	@Value("${admission.client.burst:0}")
+	private double admissionClientBurst;
+
+	@Value("${admission.client.max-clients:10000}")
+	private int admissionMaxClients;
+
+	@Value("${admission.max-in-flight:0}")
+	private int admissionMaxInFlight;
+
+	@Value("${admission.retry-after-s:1}")
+	private long admissionRetryAfterS;
+
 	@Bean("in-counter")
 	public CounterInfoService inCounter() {
 		return new CounterInfoServiceImpl();
@@ -57,6 +141,21 @@ public class SmlConfiguration {
 		return new CounterInfoServiceImpl();
 	}
 
+	@Bean("rejected-counter")
+	public CounterInfoService rejectedCounter() {
+		return new CounterInfoServiceImpl();
+	}
+
+	@Bean("duplicate-counter")
+	public CounterInfoService duplicateCounter() {
+		return new CounterInfoServiceImpl();
+	}
+
+	@Bean("dropped-counter")
+	public CounterInfoService droppedCounter() {
+		return new CounterInfoServiceImpl();
+	}
+
 	@Bean
 	public ObjectMapper objectMapper() {
 		return new ObjectMapper();
@@ -105,16 +204,157 @@ public class SmlConfiguration {
 		return WebClient.builder().clientConnector(connector).build();
 	}
 
+	@Bean("health-executor")
+	public ExecutorService healthExecutor() {
+		return CollectorExecutors.create("health", healthConcurrency, virtualThreads);
+	}
+
+	/**
+	 * Scheduler the health probes run on, shared by every probe round and by the
+	 * endpoints collecting health, container metrics and logs on request
+	 *
+	 * @param healthExecutor - ExecutorService the probes run on
+	 * @return - a Scheduler backed by healthExecutor
+	 */
+	@Bean("health-scheduler")
+	public Scheduler healthScheduler(@Qualifier("health-executor") ExecutorService healthExecutor) {
+		return Schedulers.fromExecutorService(healthExecutor, "health");
+	}
+
+	@Bean("database-executor")
+	public ExecutorService databaseExecutor() {
+		return CollectorExecutors.create("database", databaseConcurrency, virtualThreads);
+	}
+
+	/**
+	 * Scheduler ad hoc queries on the default database run on, sharing its
+	 * executor with the scheduled queries
+	 *
+	 * @param databaseExecutor - ExecutorService queries on the default database
+	 *                         run on
+	 * @return - a Scheduler backed by databaseExecutor
+	 */
+	@Bean("database-scheduler")
+	public Scheduler databaseScheduler(@Qualifier("database-executor") ExecutorService databaseExecutor) {
+		return Schedulers.fromExecutorService(databaseExecutor, "database");
+	}
+
+	@Bean("output-executor")
+	public ExecutorService outputExecutor() {
+		return CollectorExecutors.create("output", outputConcurrency, virtualThreads);
+	}
+
+	/**
+	 * Scheduler the ingestion endpoints write metrics to the output log on, so
+	 * the event loop never blocks on the appender. Its bounded concurrency is what
+	 * paces reading of request bodies.
+	 *
+	 * @param outputExecutor - ExecutorService the writes run on
+	 * @return - a Scheduler backed by outputExecutor
+	 */
+	@Bean("output-scheduler")
+	public Scheduler outputScheduler(@Qualifier("output-executor") ExecutorService outputExecutor) {
+		return Schedulers.fromExecutorService(outputExecutor, "output");
+	}
+
+	@Bean
+	public HeartbeatRegistry heartbeatRegistry() {
+		return new HeartbeatRegistry(heartbeatTtlMs, heartbeatMaxApplications);
+	}
+
+	@Bean
+	public EventDeduplicator eventDeduplicator(@Qualifier("duplicate-counter") CounterInfoService duplicateCounter) {
+		return new EventDeduplicator(dedupWindowMs, dedupMaxEntries, duplicateCounter);
+	}
+
+	@Bean
+	public AdmissionControlFilter admissionControlFilter(
+			@Qualifier("rejected-counter") CounterInfoService rejectedCounter) {
+		Set<String> paths = new HashSet<>();
+		paths.add(SmlSharedConstants.API_VERSION + SmlSharedConstants.APP_METRICS_URL);
+		paths.add(SmlSharedConstants.API_VERSION + SmlSharedConstants.APP_METRICS_BULK_URL);
+		paths.add(SmlSharedConstants.API_VERSION + SmlSharedConstants.DATA_TO_SPLUNK_URL);
+
+		return new AdmissionControlFilter(paths, admissionGlobalRatePerS, admissionGlobalBurst,
+				admissionClientRatePerS, admissionClientBurst, admissionMaxClients, admissionMaxInFlight,
+				admissionRetryAfterS, rejectedCounter);
+	}
+
+	@Bean
+	public GzipRequestFilter gzipRequestFilter() {
+		Map<String, Long> maxBytesByPath = new HashMap<>();
+		maxBytesByPath.put(SmlSharedConstants.API_VERSION + SmlSharedConstants.APPHEALTH_HEARTBEAT_URL,
+				heartbeatMaxBodyBytes);
+		maxBytesByPath.put(SmlSharedConstants.API_VERSION + SmlSharedConstants.APP_METRICS_BULK_URL,
+				bulkMaxBodyBytes);
+		return new GzipRequestFilter(maxBytesByPath);
+	}
+
+	/**
+	 * @param objectMapper - ObjectMapper of the application
+	 * @return - a Jackson2CborDecoder reading application/cbor with the settings of
+	 *         objectMapper
+	 */
+	@Bean
+	public Jackson2CborDecoder cborDecoder(ObjectMapper objectMapper) {
+		return new Jackson2CborDecoder(binaryObjectMapper(objectMapper, new CBORFactory()), MediaType.APPLICATION_CBOR);
+	}
+
+	/**
+	 * @param objectMapper - ObjectMapper of the application
+	 * @return - a Jackson2SmileDecoder reading application/x-jackson-smile with
+	 *         the settings of objectMapper
+	 */
+	@Bean
+	public Jackson2SmileDecoder smileDecoder(ObjectMapper objectMapper) {
+		return new Jackson2SmileDecoder(binaryObjectMapper(objectMapper, new SmileFactory()), SMILE_MIME_TYPE,
+				SMILE_SUFFIX_MIME_TYPE);
+	}
+
+	/**
+	 * Let request bodies be sent CBOR (application/cbor) or Smile
+	 * (application/x-jackson-smile) encoded, cheaper to parse than JSON. WebFlux
+	 * registers a Smile decoder of its own, which is replaced rather than joined
+	 * by a second one
+	 *
+	 * @param cborDecoder  - Jackson2CborDecoder registered for CBOR bodies
+	 * @param smileDecoder - Jackson2SmileDecoder replacing the default Smile
+	 *                     decoder
+	 * @return - a CodecCustomizer registering the CBOR and Smile decoders
+	 */
+	@Bean
+	public CodecCustomizer binaryCodecCustomizer(Jackson2CborDecoder cborDecoder,
+			Jackson2SmileDecoder smileDecoder) {
+		return configurer -> {
+			configurer.customCodecs().register(cborDecoder);
+			configurer.defaultCodecs().jackson2SmileDecoder(smileDecoder);
+		};
+	}
+
+	/**
+	 * @param objectMapper - ObjectMapper of the application
+	 * @param jsonFactory  - JsonFactory of a binary format
+	 * @return - an ObjectMapper reading and writing the format of jsonFactory with
+	 *         the features of objectMapper
+	 */
+	private ObjectMapper binaryObjectMapper(ObjectMapper objectMapper, JsonFactory jsonFactory) {
+		ObjectMapper binaryObjectMapper = new ObjectMapper(jsonFactory);
+		binaryObjectMapper.setConfig(objectMapper.getDeserializationConfig());
+		binaryObjectMapper.setConfig(objectMapper.getSerializationConfig());
+		return binaryObjectMapper;
+	}
+
 	@Bean
 	public DataSource dataSource() {
 		if (env.containsProperty(DATASOURCE_URL) && env.containsProperty(DATASOURCE_USERNAME)
 				&& env.containsProperty(DATASOURCE_PASSWORD)) {
-			DriverManagerDataSource dataSource = new DriverManagerDataSource();
+			HikariDataSource dataSource = new HikariDataSource();
 
 			dataSource.setDriverClassName(env.getProperty(DATASOURCE_DRIVER));
-			dataSource.setUrl(env.getProperty(DATASOURCE_URL));
+			dataSource.setJdbcUrl(env.getProperty(DATASOURCE_URL));
 			dataSource.setUsername(env.getProperty(DATASOURCE_USERNAME));
 			dataSource.setPassword(env.getProperty(DATASOURCE_PASSWORD));
+			configurePool(dataSource, DATASOURCE_POOL, "sml-db-pool");
 			return dataSource;
 		}
 
@@ -122,4 +362,93 @@ public class SmlConfiguration {
 			return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
 		}
 	}
+
+	/**
+	 * Register the default dataSource and every database of datasources.N, each
+	 * with its own pool and executor. Databases are registered under
+	 * datasources.N.name and configured like datasource, with their pool under
+	 * datasources.N.pool, and may set their own concurrency and query-timeout-s
+	 * 
+	 * @param dataSource       - DataSource of the default database
+	 * @param databaseExecutor - ExecutorService queries on the default database
+	 *                         run on
+	 * @param meterRegistry    - MeterRegistry the pools of the named databases
+	 *                         report to, if any
+	 * @return - a DataSourceRegistry of the named databases
+	 */
+	@Bean
+	public DataSourceRegistry dataSourceRegistry(DataSource dataSource,
+			@Qualifier("database-executor") ExecutorService databaseExecutor,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		DataSourceRegistry registry = new DataSourceRegistry();
+		registry.register(DataSourceRegistry.DEFAULT, dataSource, databaseExecutor, null, false);
+
+		for (int i = 1; i <= datasourcesTotal; i++) {
+			String prefix = DATASOURCES + i + ".";
+			String name = env.getProperty(prefix + "name");
+
+			if (name == null || env.getProperty(prefix + "url") == null) {
+				log.error("Skipping " + prefix + " without a name or url");
+				continue;
+			}
+			if (registry.contains(name)) {
+				log.error("Skipping " + prefix + " named " + name + " already in use");
+				continue;
+			}
+
+			HikariDataSource namedDataSource = new HikariDataSource();
+			namedDataSource.setDriverClassName(env.getProperty(prefix + "driver"));
+			namedDataSource.setJdbcUrl(env.getProperty(prefix + "url"));
+			namedDataSource.setUsername(env.getProperty(prefix + "username"));
+			namedDataSource.setPassword(env.getProperty(prefix + "password"));
+			configurePool(namedDataSource, prefix + "pool.", "sml-db-pool-" + name);
+
+			// Only DataSource beans get pool metrics from actuator, named pools are not beans
+			meterRegistry.ifAvailable(meters -> namedDataSource
+					.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meters)));
+
+			int concurrency = env.getProperty(prefix + "concurrency", Integer.class,
+					namedDataSource.getMaximumPoolSize());
+			registry.register(name, namedDataSource,
+					CollectorExecutors.create("database-" + name, concurrency, virtualThreads),
+					env.getProperty(prefix + "query-timeout-s", Integer.class), true);
+		}
+
+		log.info("Registered datasources " + registry.getNames());
+		return registry;
+	}
+
+	/**
+	 * Size the connection pool of dataSource and set its validation, leak
+	 * detection and statement caching from the pool properties under poolPrefix
+	 * 
+	 * @param dataSource      - HikariDataSource to configure
+	 * @param poolPrefix      - String representing application property location
+	 *                        of the pool properties
+	 * @param defaultPoolName - String representing the pool name when none is
+	 *                        configured
+	 */
+	private void configurePool(HikariDataSource dataSource, String poolPrefix, String defaultPoolName) {
+		dataSource.setPoolName(env.getProperty(poolPrefix + "name", defaultPoolName));
+		dataSource.setMinimumIdle(env.getProperty(poolPrefix + "min-idle", Integer.class, 1));
+		dataSource.setMaximumPoolSize(env.getProperty(poolPrefix + "max-size", Integer.class, 4));
+		dataSource.setConnectionTimeout(
+				env.getProperty(poolPrefix + "connection-timeout-ms", Long.class, 30000L));
+		dataSource.setValidationTimeout(env.getProperty(poolPrefix + "validation-timeout-ms", Long.class, 5000L));
+		dataSource.setIdleTimeout(env.getProperty(poolPrefix + "idle-timeout-ms", Long.class, 600000L));
+		dataSource.setMaxLifetime(env.getProperty(poolPrefix + "max-lifetime-ms", Long.class, 1800000L));
+		dataSource.setLeakDetectionThreshold(
+				env.getProperty(poolPrefix + "leak-detection-threshold-ms", Long.class, 0L));
+
+		// Drivers supporting JDBC 4 are validated with isValid unless a query is given
+		if (env.containsProperty(poolPrefix + "validation-query"))
+			dataSource.setConnectionTestQuery(env.getProperty(poolPrefix + "validation-query"));
+
+		// Statement caching is done by the driver, e.g. maxStatements for DB2
+		int statementCacheSize = env.getProperty(poolPrefix + "statement-cache.size", Integer.class, 0);
+		if (statementCacheSize > 0)
+			dataSource.addDataSourceProperty(
+					env.getProperty(poolPrefix + "statement-cache.driver-property", "maxStatements"),
+					String.valueOf(statementCacheSize));
+	}
 }
@@ -0,0 +1,86 @@
+package com.loblaw.metrics.config;
+
+/**
+ * Token bucket allowing ratePerS requests a second on average and bursts of up
+ * to burst requests. Tokens are refilled lazily when the bucket is used.
+ */
+public class TokenBucket {
+	private static final double NANOS_PER_S = 1_000_000_000d;
+
+	private final double capacity;
+	private final double tokensPerNano;
+
+	private double tokens;
+	private long refilledAt;
+
+	/**
+	 * @param ratePerS - double representing the tokens added a second
+	 * @param burst    - double representing the maximum tokens held, at least 1
+	 */
+	public TokenBucket(double ratePerS, double burst) {
+		this.capacity = Math.max(1, burst);
+		this.tokensPerNano = ratePerS / NANOS_PER_S;
+		this.tokens = capacity;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Take a token if one is available
+	 *
+	 * @param now - long representing the current System.nanoTime()
+	 * @return - long representing 0 when a token was taken, otherwise the
+	 *         nanoseconds until one is available
+	 */
+	public long tryAcquire(long now) {
+		return tryAcquire(now, 1);
+	}
+
+	/**
+	 * Take permits tokens if at least one is available. Permits beyond the
+	 * available tokens are borrowed from the refills to come, so batches larger
+	 * than the burst are admitted and still count against the rate
+	 *
+	 * @param now     - long representing the current System.nanoTime()
+	 * @param permits - int representing the tokens to take
+	 * @return - long representing 0 when the tokens were taken, otherwise the
+	 *         nanoseconds until one is available
+	 */
+	public synchronized long tryAcquire(long now, int permits) {
+		refill(now);
+
+		if (tokens >= 1) {
+			tokens -= permits;
+			return 0;
+		}
+		return (long) Math.ceil((1 - tokens) / tokensPerNano);
+	}
+
+	/**
+	 * Return permits tokens taken for a request that was then rejected elsewhere,
+	 * up to the bucket capacity
+	 *
+	 * @param permits - int representing the tokens to return
+	 */
+	public synchronized void refund(int permits) {
+		tokens = Math.min(capacity, tokens + permits);
+	}
+
+	/**
+	 * @param now - long representing the current System.nanoTime()
+	 * @return - true if no tokens have been taken since the bucket last refilled,
+	 *         meaning it can be dropped without changing what it admits
+	 */
+	public synchronized boolean isFull(long now) {
+		refill(now);
+		return tokens >= capacity;
+	}
+
+	private void refill(long now) {
+		// Callers read now before taking the lock, so it may precede the last refill
+		if (now <= refilledAt)
+			return;
+
+		tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+		refilledAt = now;
+	}
+}
@@ -1,23 +1,42 @@
 package com.loblaw.metrics.controller;
 
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.loblaw.metrics.exception.EmptyMessageException;
+import com.loblaw.metrics.helper.AppMetricAggregator;
+import com.loblaw.metrics.helper.EventDeduplicator;
 import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
+import com.loblaw.metrics.helper.RequestLogger;
+import com.loblaw.metrics.model.BulkIngestResult;
+import com.loblaw.metrics.model.CachedQueryResult;
+import com.loblaw.metrics.service.AppMetricsService;
 import com.loblaw.metrics.service.ContainerMetricsService;
 import com.loblaw.metrics.service.CounterInfoService;
 import com.loblaw.metrics.service.DbQueryService;
@@ -25,6 +44,7 @@ import com.loblaw.metrics.service.HealthMetricService;
 import com.loblaw.metrics.service.LogSummaryService;
 import com.loblaw.metrics.shared.SmlSharedConstants;
 import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
 import com.loblaw.metrics.shared.model.OutAppReq;
 import com.loblaw.metrics.shared.model.OutDataRes;
 import com.loblaw.metrics.shared.util.StringUtil;
@@ -35,6 +55,8 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.ExampleProperty;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 /**
  * Storemetrics rest controller
@@ -45,6 +67,7 @@ import lombok.extern.slf4j.Slf4j;
 @Validated
 @RequestMapping(SmlSharedConstants.API_VERSION)
 public class MetricsController {
+	private static final String CACHE_HEADER = "X-Cache";
 
 	@Autowired
 	@Qualifier("in-counter")
@@ -56,6 +79,9 @@ public class MetricsController {
 	@Autowired
 	private HealthMetricService healthMetricService;
 
+	@Autowired
+	private AppMetricsService appMetricsService;
+
 	@Autowired
 	private LogSummaryService logSummaryService;
 
@@ -68,44 +94,135 @@ public class MetricsController {
 	@Autowired
 	private StringUtil stringUtil;
 
+	// Metrics are written to the output log on this scheduler, never on the event
+	// loop, and blocking collectors run on the bounded elastic scheduler
+	@Autowired
+	@Qualifier("output-scheduler")
+	private Scheduler outputScheduler;
+
+	@Autowired
+	@Qualifier("health-scheduler")
+	private Scheduler healthScheduler;
+
+	@Autowired
+	@Qualifier("database-scheduler")
+	private Scheduler databaseScheduler;
+
+	@Autowired
+	private EventDeduplicator eventDeduplicator;
+
+	@Autowired
+	private AppMetricAggregator appMetricAggregator;
+
+	@Autowired
+	private RequestLogger requestLogger;
+
+	// Send /datatosplunk messages without building an OutDataRes
+	@Value("${application.datatosplunk.pass-through:false}")
+	private boolean dataPassThrough;
+
+	@Value("${application.datatosplunk.max-body-bytes:1048576}")
+	private int dataMaxBodyBytes;
+
+	@Autowired
+	@Qualifier("duplicate-counter")
+	private CounterInfoService duplicateCounter;
+
 	/**
 	 * Extract metrics from request given in the request body and output its results
 	 * to Splunk
 	 * 
-	 * @param request - AppReq representing application metrics to be sent to Splunk
-	 * @return - a ResponseEntity representing the status of the operation
+	 * @param request - Mono of AppReq representing application metrics to be sent
+	 *                to Splunk, as JSON, CBOR or Smile
+	 * @return - a Mono of ResponseEntity representing the status of the operation
 	 */
 	@ApiOperation(value = "Send application metrics to Splunk")
 	@ApiResponses(value = {
 			@ApiResponse(code = 202, message = "Application metric sucessfully sent to Splunk", examples = @io.swagger.annotations.Example(value = {
 					@ExampleProperty(mediaType = "*/*", value = "Application metric successfully sent to Splunk") })) })
-	@PostMapping(path = SmlSharedConstants.APP_METRICS_URL, consumes = "application/json")
-	public ResponseEntity<String> appmetrics(
-			@ApiParam(value = "AppReq object containing application's metric details", required = true) @RequestBody @Valid AppReq request) {
+	@PostMapping(path = SmlSharedConstants.APP_METRICS_URL, consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_CBOR_VALUE, SmlSharedConstants.APPLICATION_SMILE_VALUE })
+	public Mono<ResponseEntity<String>> appmetrics(
+			@ApiParam(value = "AppReq object containing application's metric details", required = true) @RequestBody @Valid Mono<AppReq> request) {
 		inCounter.incCounter();
-		log.info("Incoming Request: " + request + " (IC: " + inCounter.getInfo().getCounter() + ")");
 
-		// Transform request to a OutAppReq by adding additional attributes
-		OutAppReq outAppReq = logHelper.reqHelper(request);
+		return request.flatMap(appReq -> {
+			boolean logged = requestLogger.incoming(SmlSharedConstants.APP_METRICS_URL, inCounter, appReq);
+
+			// Retried events already sent within the window are acknowledged only
+			if (eventDeduplicator.isDuplicate(appReq)) {
+				requestLogger.detail(SmlSharedConstants.APP_METRICS_URL, logged,
+						"Dropped duplicate request {} (DC: {})", appReq.getRequestId(),
+						duplicateCounter.getInfo().getCounter());
+				return Mono.just(new ResponseEntity<>("Application metric already sent to Splunk",
+						HttpStatus.ACCEPTED));
+			}
+
+			// Metrics of aggregated projects are sent in the next window summary
+			if (appMetricAggregator.add(appReq))
+				return Mono.just(new ResponseEntity<>("Application metric aggregated", HttpStatus.ACCEPTED));
+
+			// Transform request to a OutAppReq by adding additional attributes, on the
+			// output scheduler as reqHelper is synchronized. A request that fails is
+			// forgotten so its retry is not dropped as a duplicate
+			return Mono.fromCallable(() -> logHelper.reqHelper(appReq)).subscribeOn(outputScheduler)
+					.map(outAppReq -> sendAppMetric(outAppReq, logged))
+					.doOnError(e -> eventDeduplicator.forget(appReq));
+		});
+	}
+
+	/**
+	 * Log outAppReq as a JSON, run on the output scheduler off the event loop
+	 * 
+	 * @param outAppReq - OutAppReq to send to Splunk
+	 * @param logged    - boolean returned by requestLogger.incoming for the request
+	 * @return - a ResponseEntity representing the status of the operation
+	 */
+	private ResponseEntity<String> sendAppMetric(OutAppReq outAppReq, boolean logged) {
 		// Convert outAppReq to a JSON
 		String strOutAppReq = stringUtil.mapToString(outAppReq);
 
 		// Log JSON
-		int outCount = logHelper.logOutResponse(strOutAppReq);
-		log.info("Finished appmetrics request (OC: " + outCount + ")");
+		int outCount = logHelper.logOutResponse(strOutAppReq, OutputRouter.APP_METRICS,
+				outAppReq.getProjectName());
+		requestLogger.finished(SmlSharedConstants.APP_METRICS_URL, logged, outCount);
 
 		String res = "Application metric successfully sent to Splunk";
 
 		return new ResponseEntity<>(res, HttpStatus.ACCEPTED);
 	}
 
+//----------------------------------------------------------------------------------------------
+
+	/**
+	 * Send a batch of application metrics to Splunk, given as a JSON array or as
+	 * one JSON record per line (NDJSON), or as a Smile array, optionally gzip
+	 * encoded
+	 * 
+	 * @param request - ServerHttpRequest whose body holds the records
+	 * @return - a Mono of ResponseEntity containing the records accepted and the
+	 *         position and reason of each record rejected
+	 */
+	@ApiOperation(value = "Send a batch of application metrics to Splunk")
+	@ApiResponses(value = {
+			@ApiResponse(code = 202, message = "Records read, with the position and reason of each record rejected") })
+	@PostMapping(path = SmlSharedConstants.APP_METRICS_BULK_URL, consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE, SmlSharedConstants.APPLICATION_SMILE_VALUE })
+	public Mono<ResponseEntity<BulkIngestResult>> appmetricsBulk(ServerHttpRequest request) {
+		inCounter.incCounter();
+		requestLogger.incoming(SmlSharedConstants.APP_METRICS_BULK_URL, inCounter);
+
+		return appMetricsService.ingest(request.getBody(), request.getHeaders().getContentType())
+				.map(result -> new ResponseEntity<>(result, HttpStatus.ACCEPTED));
+	}
+
 //----------------------------------------------------------------------------------------------
 
 	/**
 	 * Send a message to Splunk
 	 * 
 	 * @param message - String representing a message to send to Splunk
-	 * @return - a ResposneEntity containing the status of the response
+	 * @return - a Mono of ResposneEntity containing the status of the response
 	 */
 	@ApiOperation(value = "Send custom message to Splunk")
 	@ApiResponses(value = {
@@ -113,49 +230,153 @@ public class MetricsController {
 					@ExampleProperty(mediaType = "*/*", value = "Message successfully sent to Splunk") })),
 			@ApiResponse(code = 400, message = "Empty message was supplied") })
 	@GetMapping(path = SmlSharedConstants.DATA_TO_SPLUNK_URL)
-	public ResponseEntity<String> dataToSplunk(
+	public Mono<ResponseEntity<String>> dataToSplunk(
 			@ApiParam(value = "Message to send send to Splunk", example = "Custom message", required = true) @RequestParam String message) {
 		inCounter.incCounter();
-		log.info("Incoming Request to send data to Splunk (IC: " + inCounter.getInfo().getCounter() + ")");
+		boolean logged = requestLogger.incoming(SmlSharedConstants.DATA_TO_SPLUNK_URL, inCounter);
+
+		if (message == null || message.isEmpty()) {
+			log.error("Empty message string passed");
+			throw new EmptyMessageException("Empty message string passed");
+		}
+
+		if (dataPassThrough)
+			return Mono.fromCallable(() -> sendPassThroughData(message, logged)).subscribeOn(outputScheduler);
 
-		if (message != null && !message.isEmpty()) {
+		return Mono.fromCallable(() -> {
 			// Wrap message as an OutDataRes and then log it has a JSON
 			OutDataRes outDataRes = logHelper.reqHelper(message);
 			String strOutDataRes = stringUtil.mapToString(outDataRes);
-			log.debug("Messsage: " + message);
+			requestLogger.detail(SmlSharedConstants.DATA_TO_SPLUNK_URL, logged, "Messsage: {}", message);
 
 			// Log JSON
-			int outCount = logHelper.logOutResponse(strOutDataRes);
-			log.info("Finished data to Splunk request (OC: " + outCount + ")");
-		} else {
-			log.error("Empty message string passed");
-			throw new EmptyMessageException("Empty message string passed");
-		}
+			int outCount = logHelper.logOutResponse(strOutDataRes, OutputRouter.DATA, null);
+			requestLogger.finished(SmlSharedConstants.DATA_TO_SPLUNK_URL, logged, outCount);
 
-		String res = "Message successfully sent to Splunk";
+			String res = "Message successfully sent to Splunk";
 
-		return new ResponseEntity<>(res, HttpStatus.ACCEPTED);
+			return new ResponseEntity<>(res, HttpStatus.ACCEPTED);
+		}).subscribeOn(outputScheduler);
+	}
+
+	/**
+	 * Send a message given as the request body to Splunk, for messages too large
+	 * for a query parameter. The body is escaped straight into the output line
+	 * without being turned into an OutDataRes
+	 * 
+	 * @param request - ServerHttpRequest whose body is the message
+	 * @return - a Mono of ResposneEntity containing the status of the response
+	 */
+	@ApiOperation(value = "Send a custom message given as the request body to Splunk")
+	@ApiResponses(value = { @ApiResponse(code = 202, message = "Custom message sucessfully sent to Splunk"),
+			@ApiResponse(code = 400, message = "Empty message was supplied"),
+			@ApiResponse(code = 413, message = "Message is larger than application.datatosplunk.max-body-bytes") })
+	@PostMapping(path = SmlSharedConstants.DATA_TO_SPLUNK_URL, consumes = MediaType.TEXT_PLAIN_VALUE)
+	public Mono<ResponseEntity<String>> dataToSplunkBody(ServerHttpRequest request) {
+		inCounter.incCounter();
+		boolean logged = requestLogger.incoming(SmlSharedConstants.DATA_TO_SPLUNK_URL, inCounter);
+
+		MediaType contentType = request.getHeaders().getContentType();
+		Charset charset = contentType != null && contentType.getCharset() != null ? contentType.getCharset()
+				: StandardCharsets.UTF_8;
+
+		return DataBufferUtils.join(request.getBody(), dataMaxBodyBytes)
+				.onErrorMap(DataBufferLimitException.class,
+						e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+								"Message exceeds " + dataMaxBodyBytes + " bytes"))
+				.publishOn(outputScheduler).map(buffer -> {
+					CharBuffer message;
+					try {
+						message = charset.decode(buffer.asByteBuffer());
+					} finally {
+						DataBufferUtils.release(buffer);
+					}
+
+					if (message.length() == 0) {
+						log.error("Empty message string passed");
+						throw new EmptyMessageException("Empty message string passed");
+					}
+					return sendPassThroughData(message, logged);
+				}).switchIfEmpty(Mono.error(() -> new EmptyMessageException("Empty message string passed")));
+	}
+
+	/**
+	 * Log message as an OutDataRes envelope, run on the output scheduler
+	 * 
+	 * @param message - CharSequence representing a message to send to Splunk
+	 * @param logged  - boolean returned by requestLogger.incoming for the request
+	 * @return - a ResponseEntity representing the status of the operation
+	 */
+	private ResponseEntity<String> sendPassThroughData(CharSequence message, boolean logged) {
+		int outCount = logHelper.logDataPassThrough(message);
+		requestLogger.finished(SmlSharedConstants.DATA_TO_SPLUNK_URL, logged, outCount);
+
+		return new ResponseEntity<>("Message successfully sent to Splunk", HttpStatus.ACCEPTED);
 	}
 
 // ----------------------------------------------------------------------------------------------
 
 	/**
-	 * Extract application health metrics from actuator endpoints
+	 * Extract application health metrics from actuator endpoints. A recent
+	 * snapshot is served instead of probing again, and 304 is returned when the
+	 * health is unchanged since the snapshot identified by ifNoneMatch
 	 * 
-	 * @return - a ResponseEntity containing the status of the response
+	 * @param ifNoneMatch - String representing the entity tags already held by the
+	 *                    caller
+	 * @return - a Mono of ResponseEntity containing the status of the response
 	 */
 	@ApiOperation(value = "Extract and send application health metrics to Splunk")
 	@ApiResponses(value = {
 			@ApiResponse(code = 200, message = "Application health metrics sucessfully extracted and sent to Splunk"),
+			@ApiResponse(code = 304, message = "Application health unchanged since the supplied entity tag"),
 			@ApiResponse(code = 500, message = "Unexpected error extracting application health metrics") })
 
 	@GetMapping(path = SmlSharedConstants.APPHEALTH_METRICS_URL)
-	public ResponseEntity<String> apphealthmetrics() {
+	public Mono<ResponseEntity<String>> apphealthmetrics(
+			@ApiParam(value = "Entity tag of the application health already held", required = false) @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 		inCounter.incCounter();
-		log.info("Incoming Request to extract application metrics (IC: " + inCounter.getInfo().getCounter() + ")");
+		requestLogger.incoming(SmlSharedConstants.APPHEALTH_METRICS_URL, inCounter);
+
+		return Mono.fromCallable(() -> healthMetricService.getApplicationHealthSnapshot())
+				.subscribeOn(healthScheduler).map(snapshot -> {
+					String age = String.valueOf(TimeUnit.MILLISECONDS.toSeconds(snapshot.getAgeMs()));
 
-		String res = healthMetricService.sendApplicationHealth();
-		return new ResponseEntity<>(res, HttpStatus.OK);
+					if (matchesETag(ifNoneMatch, snapshot.getEtag()))
+						return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag())
+								.header(HttpHeaders.AGE, age).<String>build();
+
+					return ResponseEntity.ok().eTag(snapshot.getEtag()).header(HttpHeaders.AGE, age)
+							.body(snapshot.getJson());
+				});
+	}
+
+//----------------------------------------------------------------------------------------------
+
+	/**
+	 * Record application health heartbeats pushed by applications. Heartbeats are
+	 * merged into the next application health emission instead of probing the
+	 * applications, and the request body may be gzip encoded
+	 * 
+	 * @param heartbeats - List of HealthHeartbeat representing the batch of
+	 *                   heartbeats
+	 * @return - a Mono of ResponseEntity containing the status of the response
+	 */
+	@ApiOperation(value = "Push application health heartbeats")
+	@ApiResponses(value = {
+			@ApiResponse(code = 202, message = "Application health heartbeats successfully recorded", examples = @io.swagger.annotations.Example(value = {
+					@ExampleProperty(mediaType = "*/*", value = "2 application health heartbeats recorded") })),
+			@ApiResponse(code = 400, message = "Invalid application health heartbeat was supplied") })
+	@PostMapping(path = SmlSharedConstants.APPHEALTH_HEARTBEAT_URL, consumes = "application/json")
+	public Mono<ResponseEntity<String>> apphealthheartbeat(
+			@ApiParam(value = "List of HealthHeartbeat objects containing application health", required = true) @RequestBody @Valid List<HealthHeartbeat> heartbeats) {
+		inCounter.incCounter();
+		boolean logged = requestLogger.incoming(SmlSharedConstants.APPHEALTH_HEARTBEAT_URL, inCounter);
+		requestLogger.detail(SmlSharedConstants.APPHEALTH_HEARTBEAT_URL, logged, "{} application health heartbeats",
+				heartbeats.size());
+
+		return Mono.fromCallable(() -> healthMetricService.recordHeartbeats(heartbeats))
+				.map(recorded -> new ResponseEntity<>(recorded + " application health heartbeats recorded",
+						HttpStatus.ACCEPTED));
 	}
 
 //----------------------------------------------------------------------------------------------
@@ -166,7 +387,11 @@ public class MetricsController {
 	 * @param query        - String representing the SQL query to execute
 	 * @param sendToSplunk - String representing a flag to send query results to
 	 *                     Splunk
-	 * @return - a ResponseEntity containing the status of the response
+	 * @param cache        - String representing a flag to serve results of an
+	 *                     identical recent query from the cache
+	 * @param cacheTtlS    - Long representing the seconds the results may be
+	 *                     served from the cache
+	 * @return - a Mono of ResponseEntity containing the status of the response
 	 */
 	@ApiOperation(value = "Execute SQL query and extract results")
 	@ApiResponses(value = {
@@ -175,23 +400,36 @@ public class MetricsController {
 			@ApiResponse(code = 400, message = "Error with SQL query"),
 			@ApiResponse(code = 500, message = "Unexpected error extracting SQL query") })
 	@GetMapping(path = SmlSharedConstants.DATABASE_QUERIES_URL)
-	public ResponseEntity<String> databaseQueries(
+	public Mono<ResponseEntity<String>> databaseQueries(
 			@ApiParam(value = "SQL query to execute and extract", example = "SELECT COUNT(*) as Total FROM TX", required = true) @RequestParam String query,
-			@ApiParam(value = "True to send query results to Splunk, otherwise only return the results", required = false) @RequestParam(defaultValue = "false") String sendToSplunk) {
+			@ApiParam(value = "True to send query results to Splunk, otherwise only return the results", required = false) @RequestParam(defaultValue = "false") String sendToSplunk,
+			@ApiParam(value = "True to serve results of an identical recent query from the cache, ignored when sending to Splunk", required = false) @RequestParam(defaultValue = "false") String cache,
+			@ApiParam(value = "Seconds the results may be served from the cache, defaults to db.cache.ttl-s", required = false) @RequestParam(required = false) Long cacheTtlS) {
 		inCounter.incCounter();
-		log.info("Incoming Request to extract query information (IC: " + inCounter.getInfo().getCounter() + ")");
-		log.debug("Query: " + query);
-		log.debug("Send to splunk flag: " + sendToSplunk);
-
-		boolean boolSendToSplunk = false;
+		boolean logged = requestLogger.incoming(SmlSharedConstants.DATABASE_QUERIES_URL, inCounter);
+		requestLogger.detail(SmlSharedConstants.DATABASE_QUERIES_URL, logged, "Query: {}, send to splunk flag: {}",
+				query, sendToSplunk);
 
-		// Get the query results from the Database
 		// Sends queryResults to Splunk if flag is set to true or y
-		if ("true".equalsIgnoreCase(sendToSplunk) || "y".equalsIgnoreCase(sendToSplunk))
-			boolSendToSplunk = true;
+		boolean boolSendToSplunk = "true".equalsIgnoreCase(sendToSplunk) || "y".equalsIgnoreCase(sendToSplunk);
+
+		// Results sent to Splunk are always extracted so every request is reported
+		boolean useCache = !boolSendToSplunk && ("true".equalsIgnoreCase(cache) || "y".equalsIgnoreCase(cache));
+
+		// Get the query results from the Database on the executor of the default database
+		return Mono.fromCallable(() -> {
+			if (useCache) {
+				CachedQueryResult cachedResults = serviceHealthMetricService.getCachedDatabaseDetails(query,
+						cacheTtlS);
+				String age = String.valueOf(TimeUnit.MILLISECONDS.toSeconds(cachedResults.getAgeMs()));
 
-		List<String> queryResults = serviceHealthMetricService.getDatabaseDetails(query, boolSendToSplunk);
-		return new ResponseEntity<>(queryResults.toString(), HttpStatus.OK);
+				return ResponseEntity.ok().header(CACHE_HEADER, cachedResults.getCacheStatus())
+						.header(HttpHeaders.AGE, age).body(cachedResults.getResults().toString());
+			}
+
+			List<String> queryResults = serviceHealthMetricService.getDatabaseDetails(query, boolSendToSplunk);
+			return new ResponseEntity<>(queryResults.toString(), HttpStatus.OK);
+		}).subscribeOn(databaseScheduler);
 	}
 
 //----------------------------------------------------------------------------------------------
@@ -201,28 +439,23 @@ public class MetricsController {
 	 * 
 	 * @param sendToSplunk - String representing a flag to send query results to
 	 *                     Splunk
-	 * @return- a response entity containing the status of response and the
+	 * @return- a Mono of response entity containing the status of response and the
 	 *          resulting container metric details
 	 */
 	@ApiOperation(value = "Extract server container metrics")
 	@ApiResponses(value = { @ApiResponse(code = 200, message = "Container health metrics sucessfully extracted"),
 			@ApiResponse(code = 500, message = "Unexpected error extracting container health metrics") })
 	@GetMapping(path = SmlSharedConstants.CONTAINERHEALTH_METRICS_URL)
-	public ResponseEntity<String> containerhealthmetrics(
+	public Mono<ResponseEntity<String>> containerhealthmetrics(
 			@ApiParam(value = "True to send query results to Splunk, otherwise only return the results", required = false) @RequestParam(defaultValue = "false") String sendToSplunk) {
 		inCounter.incCounter();
-		log.info("Incoming Request to extract container health metrics (IC: " + inCounter.getInfo().getCounter() + ")");
-
-		boolean boolSendToSplunk = false;
+		requestLogger.incoming(SmlSharedConstants.CONTAINERHEALTH_METRICS_URL, inCounter);
 
 		// Sends container metric details to Splunk if flag is set to true or y
-		if ("true".equalsIgnoreCase(sendToSplunk) || "y".equalsIgnoreCase(sendToSplunk)) {
-			boolSendToSplunk = true;
-		}
+		boolean boolSendToSplunk = "true".equalsIgnoreCase(sendToSplunk) || "y".equalsIgnoreCase(sendToSplunk);
 
-		String res = containerMetricsService.sendContainerMetrics(boolSendToSplunk);
-
-		return new ResponseEntity<>(res, HttpStatus.OK);
+		return Mono.fromCallable(() -> containerMetricsService.sendContainerMetrics(boolSendToSplunk))
+				.subscribeOn(healthScheduler).map(res -> new ResponseEntity<>(res, HttpStatus.OK));
 	}
 
 //----------------------------------------------------------------------------------------------
@@ -235,8 +468,8 @@ public class MetricsController {
 	 * @param filePath       - String representing the path to the log file
 	 * @param searchKeywords - Comma separated String representing the keywords to
 	 *                       filter log entries
-	 * @return - a ResponseEntity containing the status of the response and the
-	 *         String representation of a list of extracted logs
+	 * @return - a Mono of ResponseEntity containing the status of the response and
+	 *         the String representation of a list of extracted logs
 	 */
 	@ApiOperation(value = "Extract logs and send to Splunk")
 	@ApiResponses(value = {
@@ -245,17 +478,41 @@ public class MetricsController {
 			@ApiResponse(code = 400, message = "Error from reading log file at filePath"),
 			@ApiResponse(code = 500, message = "Unexpected error extracting logs from filePath") })
 	@GetMapping(path = SmlSharedConstants.LOG_SUMMARY_URL)
-	public ResponseEntity<String> logExtractor(
+	public Mono<ResponseEntity<String>> logExtractor(
 			@ApiParam(value = "Absolute path to the log file to extract logs from", example = "C:/logs/catalina.log", required = true) @RequestParam String filePath,
 			@ApiParam(value = "Comma separated list of keywords to search logs for and retain", example = "brave.tracing", required = true) @RequestParam String searchKeywords,
 			@ApiParam(value = "Comma separated list of keywords to filter logs with and exclude", example = "POSService", required = false) @RequestParam(defaultValue = "") String excludeKeywords) {
 		inCounter.incCounter();
-		log.info(String.format("Incoming Request to extract log data (IC: %d)", inCounter.getInfo().getCounter()));
+		requestLogger.incoming(SmlSharedConstants.LOG_SUMMARY_URL, inCounter);
 
-		logSummaryService.sendLogData(filePath, searchKeywords, excludeKeywords);
+		return Mono.fromRunnable(() -> logSummaryService.sendLogData(filePath, searchKeywords, excludeKeywords))
+				.subscribeOn(healthScheduler)
+				.thenReturn(new ResponseEntity<>("Logs successfully extracted and sent to Splunk", HttpStatus.OK));
+	}
 
-		String res = "Logs successfully extracted and sent to Splunk";
+//----------------------------------------------------------------------------------------------
 
-		return new ResponseEntity<>(res, HttpStatus.OK);
+	/**
+	 * Check whether etag is one of the entity tags listed in ifNoneMatch, using
+	 * the weak comparison If-None-Match calls for
+	 * 
+	 * @param ifNoneMatch - String representing the If-None-Match header value
+	 * @param etag        - String representing the current entity tag
+	 * @return - true if the caller already holds etag, false otherwise
+	 */
+	private boolean matchesETag(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null)
+			return false;
+
+		String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.startsWith("W/"))
+				tag = tag.substring(2);
+
+			if ("*".equals(tag) || opaqueTag.equals(tag))
+				return true;
+		}
+		return false;
 	}
 }
@@ -1,13 +1,14 @@
 package com.loblaw.metrics.exception;
 
+import javax.validation.ConstraintViolationException;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
-public class ControllerAdvisor extends ResponseEntityExceptionHandler {
+public class ControllerAdvisor {
 	@ExceptionHandler(UnexpectedApplicationHealthException.class)
 	public ResponseEntity<String> UnexpectedApplicationHealthException(UnexpectedApplicationHealthException ex) {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -42,4 +43,9 @@ public class ControllerAdvisor extends ResponseEntityExceptionHandler {
 	public ResponseEntity<String> UnsuccessfulSqlQueryException(UnsuccessfulSqlQueryException ex) {
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
 	}
+
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<String> ConstraintViolationException(ConstraintViolationException ex) {
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	}
 }
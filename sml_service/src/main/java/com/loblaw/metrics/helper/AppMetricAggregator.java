@@ -0,0 +1,194 @@
+package com.loblaw.metrics.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.loblaw.metrics.model.LatencySketch;
+import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.model.OutAppSummaryRes;
+import com.loblaw.metrics.shared.util.StringUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aggregates application metrics carrying a responseTime by projectName,
+ * methodName and responseCode, and sends one summary event per group every
+ * application.aggregation.window-ms instead of one event per metric. Metrics of
+ * projects listed in application.aggregation.raw-projects, metrics without a
+ * responseTime and new groups once max-groups are held are sent raw.
+ */
+@Component
+@Slf4j
+public class AppMetricAggregator {
+	private static final char KEY_SEPARATOR = '\u001f';
+
+	@Autowired
+	private LogHelper logHelper;
+
+	@Autowired
+	private StringUtil stringUtil;
+
+	@Value("${application.aggregation.enabled:false}")
+	private boolean enabled;
+
+	@Value("${application.aggregation.max-groups:10000}")
+	private int maxGroups;
+
+	@Value("${application.aggregation.relative-accuracy:0.01}")
+	private double relativeAccuracy;
+
+	private Set<String> rawProjects = Collections.emptySet();
+
+	// Adding to the groups takes the read lock, swapping them out the write lock,
+	// so no metric is added to a window already sent
+	private final ReadWriteLock windowLock = new ReentrantReadWriteLock();
+	private Map<String, MetricGroup> groups = new ConcurrentHashMap<>();
+	private long windowStart = System.currentTimeMillis();
+
+	@Value("${application.aggregation.raw-projects:}")
+	public void setRawProjects(String rawProjects) {
+		this.rawProjects = rawProjects == null || rawProjects.trim().isEmpty() ? Collections.emptySet()
+				: new HashSet<>(Arrays.asList(rawProjects.trim().split("\\s*,\\s*")));
+	}
+
+	/**
+	 * Add appReq to the summary of its group
+	 *
+	 * @param appReq - AppReq representing an application metric
+	 * @return - true if appReq was aggregated, false if it must be sent raw
+	 */
+	public boolean add(AppReq appReq) {
+		if (!enabled || appReq.getResponseTime() == null || rawProjects.contains(appReq.getProjectName()))
+			return false;
+
+		String key = appReq.getProjectName() + KEY_SEPARATOR + appReq.getMethodName() + KEY_SEPARATOR
+				+ appReq.getResponseCode();
+
+		windowLock.readLock().lock();
+		try {
+			MetricGroup group = groups.get(key);
+
+			if (group == null) {
+				if (groups.size() >= maxGroups)
+					return false;
+				group = groups.computeIfAbsent(key, k -> new MetricGroup(appReq, relativeAccuracy));
+			}
+
+			group.add(appReq.getResponseTime());
+			return true;
+		} finally {
+			windowLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Send a summary event of every group of the window ending now and start a new
+	 * window
+	 */
+	@Scheduled(initialDelayString = "${application.aggregation.window-ms:60000}",
+			fixedRateString = "${application.aggregation.window-ms:60000}")
+	public void sendSummaries() {
+		Map<String, MetricGroup> window;
+		long start;
+		long end;
+
+		windowLock.writeLock().lock();
+		try {
+			window = groups;
+			start = windowStart;
+			end = System.currentTimeMillis();
+			groups = new ConcurrentHashMap<>();
+			windowStart = end;
+		} finally {
+			windowLock.writeLock().unlock();
+		}
+
+		if (window.isEmpty())
+			return;
+
+		List<String> summaries = new ArrayList<>(window.size());
+		for (MetricGroup group : window.values()) {
+			String summary = stringUtil.mapToString(group.toSummary(start, end));
+			if (summary != null)
+				summaries.add(summary);
+		}
+
+		int outCount = logHelper.logOutResponses(summaries, OutputRouter.APP_SUMMARY, null);
+		log.info("Sent " + summaries.size() + " application metric summaries (OC: " + outCount + ")");
+	}
+
+	/**
+	 * Send the window in progress so its metrics are not lost on shutdown
+	 */
+	@PreDestroy
+	public void close() {
+		sendSummaries();
+	}
+
+	/**
+	 * Statistics of the response times of one group within a window
+	 */
+	private class MetricGroup {
+		private final String projectName;
+		private final String methodName;
+		private final Integer responseCode;
+		private final LatencySketch sketch;
+
+		private long count = 0;
+		private long sum = 0;
+		private int min = Integer.MAX_VALUE;
+		private int max = Integer.MIN_VALUE;
+
+		private MetricGroup(AppReq appReq, double relativeAccuracy) {
+			this.projectName = appReq.getProjectName();
+			this.methodName = appReq.getMethodName();
+			this.responseCode = appReq.getResponseCode();
+			this.sketch = new LatencySketch(relativeAccuracy);
+		}
+
+		private synchronized void add(int responseTime) {
+			count++;
+			sum += responseTime;
+			min = Math.min(min, responseTime);
+			max = Math.max(max, responseTime);
+			sketch.add(responseTime);
+		}
+
+		private synchronized OutAppSummaryRes toSummary(long windowStart, long windowEnd) {
+			OutAppSummaryRes summary = new OutAppSummaryRes();
+			logHelper.updateOutAppSummaryRes(summary);
+
+			summary.setProjectName(projectName);
+			summary.setMethodName(methodName);
+			summary.setResponseCode(responseCode);
+			summary.setWindowStart(windowStart);
+			summary.setWindowEnd(windowEnd);
+			summary.setCount(count);
+			summary.setSum(sum);
+			summary.setMin(min);
+			summary.setMax(max);
+			summary.setP50(sketch.getQuantile(0.5));
+			summary.setP90(sketch.getQuantile(0.9));
+			summary.setP99(sketch.getQuantile(0.99));
+			summary.setSketchGamma(sketch.getGamma());
+			summary.setSketchZeroCount(sketch.getZeroCount());
+			summary.setSketch(sketch.getBuckets());
+			return summary;
+		}
+	}
+}
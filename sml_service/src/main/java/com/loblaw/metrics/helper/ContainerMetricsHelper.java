@@ -82,7 +82,7 @@ public class ContainerMetricsHelper {
 		if (strRes != null) {
 			log.debug("Container metrics response: " + strRes);
 			// Log JSON
-			int outCount = logHelper.logOutResponse(strRes);
+			int outCount = logHelper.logOutResponse(strRes, OutputRouter.CONTAINER, null);
 			log.info(String.format("Finished logging container metrics to file (OC: %d)", outCount));
 		} else {
 			log.info("No container metrics details to send");
@@ -1,21 +1,43 @@
 package com.loblaw.metrics.helper;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loblaw.metrics.config.DataSourceRegistry;
+import com.loblaw.metrics.model.IncrementalQuery;
 import com.loblaw.metrics.model.LastRun;
+import com.loblaw.metrics.model.QuerySettings;
 import com.loblaw.metrics.model.ScheduleTime;
+import com.loblaw.metrics.model.Watermark;
 import com.loblaw.metrics.shared.model.OutDbQueryRes;
 import com.loblaw.metrics.shared.util.StringUtil;
 
@@ -29,7 +51,7 @@ public class DatabaseExtractionHelper {
 	public static final int SKIP_STATUS_CODE = 0;
 
 	@Autowired
-	private JdbcTemplate jdbcTemplate;
+	private DataSourceRegistry dataSourceRegistry;
 
 	/**
 	 * Application scoped variable containing a String value representing the last
@@ -50,21 +72,80 @@ public class DatabaseExtractionHelper {
 	@Autowired
 	private StringUtil stringUtil;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private WatermarkHelper watermarkHelper;
+
 	@Value("${db.last-run-file}")
 	private String lastRunFile;
 
 	@Value("${db.max-row}")
 	private Integer maxRow;
 
+	@Value("${db.query-timeout-s:0}")
+	private Integer defaultQueryTimeoutS;
+
+	@Value("${db.isolation:#{null}}")
+	private String defaultIsolation;
+
+	@Value("${db.streaming.enabled:false}")
+	private boolean defaultStreaming;
+
+	@Value("${db.streaming.fetch-size:500}")
+	private Integer streamingFetchSize;
+
+	@Value("${db.streaming.batch-rows:1000}")
+	private Integer streamingBatchRows;
+
+	@Value("${db.streaming.max-row:0}")
+	private Integer streamingMaxRow;
+
+	@Value("${db.output-format:rows}")
+	private String defaultOutputFormat;
+
+	@Value("${db.incremental.page-size:1000}")
+	private Integer incrementalPageSize;
+
+	@Value("${db.incremental.max-pages:10}")
+	private Integer incrementalMaxPages;
+
 	private static final String DEFAULT_TIME = "2021-01-01 00:00:00.000000";
 	private static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSSSSS";
 	private static final String QUERY_SERACH = ".search";
 	private static final String QUERY_METHOD_NAME = ".method-name";
-	private static final String FILL_DATE = "(<<.*>>)";
+	private static final String QUERY_TIMEOUT = ".timeout-s";
+	private static final String QUERY_STREAMING = ".streaming";
+	private static final String QUERY_MAX_ROW = ".max-row";
+	private static final String QUERY_FETCH_SIZE = ".fetch-size";
+	private static final String QUERY_ISOLATION = ".isolation";
+	private static final String QUERY_DATASOURCE = ".datasource";
+	private static final String QUERY_OUTPUT_FORMAT = ".output-format";
+	private static final String COLUMNAR_FORMAT = "columnar";
+	private static final String INCREMENTAL_COLUMN = ".incremental.column";
+	private static final String INCREMENTAL_TYPE = ".incremental.type";
+	private static final String INCREMENTAL_PAGE_SIZE = ".incremental.page-size";
+	private static final String INCREMENTAL_MAX_PAGES = ".incremental.max-pages";
+	private static final String INCREMENTAL_SUM = ".incremental.sum";
+	private static final String INCREMENTAL_START = ".incremental.start";
+	private static final String WATERMARK_PARAM = "watermark";
+	private static final String NUMBER_TYPE = "number";
+	private static final Pattern ISOLATION = Pattern.compile("(?i)ur|cs|rs|rr");
+	private static final Pattern ISOLATION_CLAUSE = Pattern.compile("(?i).*\\bwith\\s+(ur|cs|rs|rr)\\s*;?\\s*$",
+			Pattern.DOTALL);
+	private static final String LAST_RUN_PARAM = "last_run";
+	private static final Pattern FILL_DATE = Pattern.compile("<<[^>]*>>");
+	private static final Pattern TRAILING_SEMICOLON = Pattern.compile(";\\s*$");
+	private static final Object[] NO_ARGS = new Object[0];
+
+	// Scheduled queries parsed for named parameters, keyed by configured query text
+	private final Map<String, ParsedSql> parsedQueries = new ConcurrentHashMap<>();
 
 	/**
 	 * On the given schedule, execute the queries given in the application
-	 * properties on the connected database and send their results to Splunk
+	 * properties concurrently on the connected database and send the results of
+	 * each query to Splunk as soon as it completes
 	 * 
 	 * @param queryLocation - String representing application property location for
 	 *                      database query String
@@ -75,14 +156,9 @@ public class DatabaseExtractionHelper {
 	 */
 	public void scheduledSendDatabaseDetails(String queryLocation, String queryTotal, ScheduleTime scheduleTime) {
 		String lastRunStr = null;
-		List<String> dbQueryResult = null;
-
-		String query = "";
-		String querySearchLocation = "";
-		String queryMethodName = "";
-		String queryMethodLocation = "";
 		Integer numQueries = 0;
-		int corrQueries = 0;
+		AtomicInteger corrQueries = new AtomicInteger();
+		List<CompletableFuture<Void>> queries = new ArrayList<>();
 
 		int inCount = logHelper.incInResponse();
 		log.info(
@@ -95,58 +171,316 @@ public class DatabaseExtractionHelper {
 				numQueries = 0;
 		}
 
-		// Extract last time database extraction was executed
+		// Extract last time database extraction was executed, bound as :last_run
 		lastRunStr = getLastDbRun();
+		MapSqlParameterSource params = new MapSqlParameterSource(LAST_RUN_PARAM, toTimestamp(lastRunStr));
 
-		// Execute each SQL query
+		// Submit each SQL query to the executor of its datasource
 		for (int i = 1; i <= numQueries; i++) {
-			querySearchLocation = queryLocation + i + QUERY_SERACH;
-			queryMethodLocation = queryLocation + i + QUERY_METHOD_NAME;
+			String querySearchLocation = queryLocation + i + QUERY_SERACH;
+			String queryMethodLocation = queryLocation + i + QUERY_METHOD_NAME;
 
 			if (env.containsProperty(querySearchLocation)) {
-				dbQueryResult = new ArrayList<>();
+				// Parse the query once, so every tick prepares the same SQL text
+				ParsedSql parsedSql = parsedQueries.computeIfAbsent(env.getProperty(querySearchLocation),
+						this::parseScheduledQuery);
 
-				query = env.getProperty(querySearchLocation);
-
-				// Only consider the last run time for short term scheduler
-				if (lastRunStr != null && scheduleTime.equals(ScheduleTime.SHORT_TERM)) {
-					query = query.replaceAll(FILL_DATE, String.format("'%s'", lastRunStr));
+				String queryMethodName = "";
+				if (env.containsProperty(queryMethodLocation)) {
+					queryMethodName = env.getProperty(queryMethodLocation);
 				}
 
-				log.debug("Query to database is: " + query);
+				QuerySettings settings = getQuerySettings(queryLocation + i);
+				if (!dataSourceRegistry.contains(settings.getDatasource())) {
+					log.error("Database Query Helper : Skipping " + queryLocation + i + " on unknown datasource "
+							+ settings.getDatasource());
+					continue;
+				}
 
-				// Track time taken for query
-				long startTime = System.currentTimeMillis();
+				// Each datasource runs its queries on its own executor
+				ExecutorService executor = dataSourceRegistry.getExecutor(settings.getDatasource());
+				IncrementalQuery incremental = getIncrementalQuery(queryLocation + i, queryMethodName);
 
-				// Query database and update last run date time
-				int responseCode = addQueryResultsToList(dbQueryResult, query);
+				String finalMethodName = queryMethodName;
 
-				// DB Query was successful, increment count of correct queries
-				if (responseCode == VALID_STATUS_CODE) {
-					corrQueries++;
+				// Incremental queries bind their own watermark on every page
+				if (incremental != null) {
+					String finalLastRunStr = lastRunStr;
+					queries.add(CompletableFuture.runAsync(() -> {
+						if (runIncrementalQuery(parsedSql, finalLastRunStr, incremental, finalMethodName, settings))
+							corrQueries.incrementAndGet();
+					}, executor));
+					continue;
 				}
 
-				// Calculate elapsed time for query
-				long finishTime = System.currentTimeMillis();
-				long elapsedTime = finishTime - startTime;
-
-				if (env.containsProperty(queryMethodLocation)) {
-					queryMethodName = env.getProperty(queryMethodLocation);
+				String query;
+				Object[] args;
+				try {
+					query = NamedParameterUtils.substituteNamedParameters(parsedSql, params);
+					args = NamedParameterUtils.buildValueArray(parsedSql, params, null);
+				} catch (InvalidDataAccessApiUsageException e) {
+					log.error("Database Query Helper : Parameter exception in scheduledSendDatabaseDetails : {}",
+							e.toString(), e);
+					continue;
 				}
-				sendQueryResultsToSplunk(dbQueryResult, queryMethodName, responseCode, elapsedTime);
+
+				queries.add(CompletableFuture.runAsync(() -> {
+					boolean success = settings.isStreaming() || settings.isColumnar()
+							? streamScheduledQuery(query, args, finalMethodName, settings)
+							: sendScheduledQuery(query, args, finalMethodName, settings);
+					if (success)
+						corrQueries.incrementAndGet();
+				}, executor));
 			}
 		}
 
+		// Wait for every query of this tick before updating the last run
+		CompletableFuture.allOf(queries.toArray(new CompletableFuture[0])).join();
+
 		int outCount = logHelper.incOutResponse();
 		log.info(String.format("Finished %s extraction of Database queries (OC: %d)", scheduleTime.toString(),
 				outCount));
 
 		// Update the last db run time if the short term scheduler is running
-		if (scheduleTime.equals(ScheduleTime.SHORT_TERM) && corrQueries > 0) {
+		if (scheduleTime.equals(ScheduleTime.SHORT_TERM) && corrQueries.get() > 0) {
 			setLastDbRun();
 		}
 	}
 
+	/**
+	 * Execute query and send its results to Splunk
+	 * 
+	 * @param query      - String representing an SQL query
+	 * @param args       - Object array of values bound to the query parameters
+	 * @param methodName - String representing method name to identify query
+	 * @param settings   - QuerySettings applied to the query statement
+	 * @return - true if the query was successful, false otherwise
+	 */
+	private boolean sendScheduledQuery(String query, Object[] args, String methodName, QuerySettings settings) {
+		List<String> dbQueryResult = new ArrayList<>();
+		log.debug("Query to database is: " + query);
+
+		// Track time taken for query
+		long startTime = System.currentTimeMillis();
+
+		// Query database
+		int responseCode = addQueryResultsToList(dbQueryResult, query, args, settings);
+
+		// Calculate elapsed time for query
+		long finishTime = System.currentTimeMillis();
+		long elapsedTime = finishTime - startTime;
+
+		sendQueryResultsToSplunk(dbQueryResult, methodName, responseCode, elapsedTime);
+
+		// DB Query was successful
+		return responseCode == VALID_STATUS_CODE;
+	}
+
+	/**
+	 * Read the rows of an incremental query beyond its watermark in pages of
+	 * incremental.page-size rows, at most incremental.max-pages pages per run, and
+	 * send the aggregates of the rows read to Splunk. The watermark advances after
+	 * every page read to the greatest value of the page, so rows left over are
+	 * read on the next run and a failed page is read again. Rows sharing the
+	 * greatest value of a full page are left to the next page, and a page that is
+	 * not ordered by the incremental column fails rather than skip rows.
+	 * 
+	 * @param parsedSql   - ParsedSql of the query, binding :watermark and
+	 *                    optionally :last_run
+	 * @param lastRunStr  - String representing the last run in DATE_TIME_FORMAT
+	 * @param incremental - IncrementalQuery representing the watermark settings
+	 * @param methodName  - String representing method name to identify query
+	 * @param settings    - QuerySettings applied to every page statement
+	 * @return - true if every page was read successfully, false otherwise
+	 */
+	private boolean runIncrementalQuery(ParsedSql parsedSql, String lastRunStr, IncrementalQuery incremental,
+			String methodName, QuerySettings settings) {
+		long startTime = System.currentTimeMillis();
+
+		Watermark watermark = loadWatermark(incremental, lastRunStr);
+
+		QuerySettings pageSettings = new QuerySettings(incremental.getPageSize(), incremental.getPageSize(),
+				settings.getTimeoutS(), settings.getIsolation(), false, settings.getDatasource(), false);
+
+		long rows = 0;
+		Map<String, BigDecimal> sums = new LinkedHashMap<>();
+		int responseCode = VALID_STATUS_CODE;
+		boolean caughtUp = false;
+
+		for (int page = 0; page < incremental.getMaxPages() && !caughtUp; page++) {
+			MapSqlParameterSource params = new MapSqlParameterSource(LAST_RUN_PARAM, toTimestamp(lastRunStr))
+					.addValue(WATERMARK_PARAM, toWatermarkValue(watermark.getValue(), incremental));
+
+			String query;
+			Object[] args;
+			try {
+				query = NamedParameterUtils.substituteNamedParameters(parsedSql, params);
+				args = NamedParameterUtils.buildValueArray(parsedSql, params, null);
+			} catch (InvalidDataAccessApiUsageException e) {
+				log.error("Database Query Helper : Parameter exception in runIncrementalQuery : {}", e.toString(), e);
+				responseCode = SKIP_STATUS_CODE;
+				break;
+			}
+
+			IncrementalPage incrementalPage = new IncrementalPage(incremental.getPageSize());
+
+			responseCode = runQuery(query, args, pageSettings, rs -> {
+				Object value = incremental.isNumeric() ? rs.getLong(incremental.getColumn())
+						: rs.getTimestamp(incremental.getColumn());
+				incrementalPage.addRow(rs.wasNull() ? null : value);
+
+				for (String column : incremental.getSumColumns()) {
+					BigDecimal columnValue = rs.getBigDecimal(column);
+					if (columnValue != null)
+						incrementalPage.addSum(column, columnValue);
+				}
+			});
+
+			if (responseCode == VALID_STATUS_CODE && !incrementalPage.isOrdered()) {
+				log.error("Database Query Helper : " + methodName + " is not ordered by its incremental column "
+						+ incremental.getColumn() + ", its watermark is not advanced");
+				responseCode = SKIP_STATUS_CODE;
+			}
+
+			if (responseCode != VALID_STATUS_CODE) {
+				// Reread the failed page on the next run
+				watermark = loadWatermark(incremental, lastRunStr);
+				break;
+			}
+
+			incrementalPage.finish();
+			if (incrementalPage.isSplit())
+				log.warn("Database Query Helper : More than " + incremental.getPageSize() + " rows of " + methodName
+						+ " share the watermark " + fromWatermarkValue(incrementalPage.getWatermark())
+						+ ", rows beyond the page are skipped, raise incremental.page-size");
+
+			rows += incrementalPage.getRows();
+			incrementalPage.getSums().forEach((column, sum) -> sums.merge(column, sum, BigDecimal::add));
+			caughtUp = !incrementalPage.isFull();
+
+			if (incrementalPage.getRows() > 0) {
+				if (incrementalPage.getWatermark() != null)
+					watermark.setValue(fromWatermarkValue(incrementalPage.getWatermark()));
+				watermark.setTotalRows(watermark.getTotalRows() + incrementalPage.getRows());
+				Watermark pageWatermark = watermark;
+				incrementalPage.getSums()
+						.forEach((column, sum) -> pageWatermark.getTotals().merge(column, sum, BigDecimal::add));
+				watermarkHelper.setWatermark(incremental.getKey(), watermark);
+			}
+		}
+
+		log.debug(String.format("Read %d rows of %s up to watermark %s", rows, methodName, watermark.getValue()));
+
+		List<String> dbQueryResult = new ArrayList<>();
+		if (responseCode == VALID_STATUS_CODE)
+			dbQueryResult.add(stringUtil.mapToString(getIncrementalAggregates(rows, sums, watermark, caughtUp)));
+
+		sendQueryResultsToSplunk(dbQueryResult, methodName, responseCode, System.currentTimeMillis() - startTime);
+
+		return responseCode == VALID_STATUS_CODE;
+	}
+
+	/**
+	 * @param rows      - long representing the rows read this run
+	 * @param sums      - Map of the sum of each summed column read this run
+	 * @param watermark - Watermark reached this run
+	 * @param caughtUp  - true if every row beyond the watermark was read
+	 * @return - Map of the aggregates sent to Splunk for an incremental query
+	 */
+	private Map<String, Object> getIncrementalAggregates(long rows, Map<String, BigDecimal> sums, Watermark watermark,
+			boolean caughtUp) {
+		Map<String, Object> aggregates = new LinkedHashMap<>();
+
+		aggregates.put("ROW_COUNT", rows);
+		sums.forEach((column, sum) -> aggregates.put("SUM_" + column.toUpperCase(), sum));
+		aggregates.put("TOTAL_ROW_COUNT", watermark.getTotalRows());
+		watermark.getTotals().forEach((column, sum) -> aggregates.put("TOTAL_SUM_" + column.toUpperCase(), sum));
+		aggregates.put("WATERMARK", watermark.getValue());
+		aggregates.put("CAUGHT_UP", caughtUp);
+
+		return aggregates;
+	}
+
+	/**
+	 * Load the stored watermark of an incremental query, starting from
+	 * incremental.start, or the last run for timestamp watermarks, when none is
+	 * stored
+	 * 
+	 * @param incremental - IncrementalQuery representing the watermark settings
+	 * @param lastRunStr  - String representing the last run in DATE_TIME_FORMAT
+	 * @return - Watermark of the query
+	 */
+	private Watermark loadWatermark(IncrementalQuery incremental, String lastRunStr) {
+		Watermark watermark = watermarkHelper.getWatermark(incremental.getKey());
+		if (watermark == null)
+			watermark = new Watermark(incremental.getStart() != null ? incremental.getStart() : lastRunStr);
+		return watermark;
+	}
+
+	/**
+	 * Convert a stored watermark to the value bound as :watermark
+	 * 
+	 * @param value       - String representing the stored watermark
+	 * @param incremental - IncrementalQuery representing the watermark settings
+	 * @return - Long or Timestamp of value, or null if it is not set
+	 */
+	private Object toWatermarkValue(String value, IncrementalQuery incremental) {
+		if (value == null)
+			return null;
+		return incremental.isNumeric() ? Long.valueOf(value) : toTimestamp(value);
+	}
+
+	/**
+	 * Convert a value read from the watermark column to the stored watermark
+	 * 
+	 * @param value - Long or Timestamp read from the watermark column
+	 * @return - String representing the stored watermark
+	 */
+	private String fromWatermarkValue(Object value) {
+		if (value instanceof Timestamp)
+			return ((Timestamp) value).toLocalDateTime().format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT));
+		return value.toString();
+	}
+
+	/**
+	 * Read the incremental settings of the query at queryLocation
+	 * 
+	 * @param queryLocation - String representing application property location of
+	 *                      the query
+	 * @param methodName    - String representing method name to identify query
+	 * @return - IncrementalQuery of the query, or null if the query is not
+	 *         incremental
+	 */
+	private IncrementalQuery getIncrementalQuery(String queryLocation, String methodName) {
+		if (!env.containsProperty(queryLocation + INCREMENTAL_COLUMN))
+			return null;
+
+		IncrementalQuery incremental = new IncrementalQuery();
+		incremental.setKey(methodName.isEmpty() ? queryLocation : methodName);
+		incremental.setColumn(env.getProperty(queryLocation + INCREMENTAL_COLUMN).trim());
+		incremental.setNumeric(NUMBER_TYPE.equalsIgnoreCase(env.getProperty(queryLocation + INCREMENTAL_TYPE)));
+		incremental.setPageSize(Math.max(1, getQuerySetting(queryLocation + INCREMENTAL_PAGE_SIZE,
+				incrementalPageSize)));
+		incremental.setMaxPages(Math.max(1, getQuerySetting(queryLocation + INCREMENTAL_MAX_PAGES,
+				incrementalMaxPages)));
+
+		List<String> sumColumns = new ArrayList<>();
+		if (env.containsProperty(queryLocation + INCREMENTAL_SUM)) {
+			for (String column : env.getProperty(queryLocation + INCREMENTAL_SUM).split(",")) {
+				if (!column.trim().isEmpty())
+					sumColumns.add(column.trim());
+			}
+		}
+		incremental.setSumColumns(sumColumns);
+
+		String start = env.getProperty(queryLocation + INCREMENTAL_START);
+		if (start == null && incremental.isNumeric())
+			start = "0";
+		incremental.setStart(start);
+
+		return incremental;
+	}
+
 	/**
 	 * Given an SQL query to execute, append the results of the query to list
 	 * 
@@ -155,32 +489,222 @@ public class DatabaseExtractionHelper {
 	 * @return - int representing the reponse code of the database query
 	 */
 	public int addQueryResultsToList(List<String> list, String query) {
+		return addQueryResultsToList(list, query, NO_ARGS,
+				new QuerySettings(maxRow, 0, defaultQueryTimeoutS, defaultIsolation, false, null, false));
+	}
+
+	/**
+	 * Execute query and send its rows to Splunk as they are read, in batches of
+	 * db.streaming.batch-rows if the query is streamed or in a single batch
+	 * otherwise. Columnar queries send the column names once per batch and each
+	 * row as an array of values
+	 * 
+	 * @param query      - String representing an SQL query
+	 * @param args       - Object array of values bound to the query parameters
+	 * @param methodName - String representing method name to identify query
+	 * @param settings   - QuerySettings applied to the query statement
+	 * @return - true if the query was successful, false otherwise
+	 */
+	private boolean streamScheduledQuery(String query, Object[] args, String methodName, QuerySettings settings) {
+		log.debug("Query to database streamed in batches is: " + query);
+
+		// Track time taken for query, each batch reports the time taken so far
+		long startTime = System.currentTimeMillis();
+
+		int batchRows = settings.isStreaming() ? streamingBatchRows : Integer.MAX_VALUE;
+
+		QueryResultStreamer streamer = new QueryResultStreamer(objectMapper, batchRows, (columns, batch) -> {
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			if (settings.isColumnar())
+				sendColumnarResultsToSplunk(columns, batch, methodName, VALID_STATUS_CODE, elapsedTime);
+			else
+				sendQueryResultsToSplunk(batch, methodName, VALID_STATUS_CODE, elapsedTime);
+		}, settings.isColumnar());
+
+		int responseCode = runQuery(query, args, settings, streamer);
+
+		if (responseCode == VALID_STATUS_CODE) {
+			streamer.finish();
+			log.debug("Streamed " + streamer.getTotalRows() + " rows for " + methodName);
+		} else {
+			sendQueryResultsToSplunk(new ArrayList<>(), methodName, responseCode,
+					System.currentTimeMillis() - startTime);
+		}
+
+		return responseCode == VALID_STATUS_CODE;
+	}
+
+	/**
+	 * Given an SQL query to execute with settings, append the results of the query
+	 * to list
+	 * 
+	 * @param list     - List representing the results of SQL queries
+	 * @param query    - String representing an SQL query
+	 * @param args     - Object array of values bound to the query parameters
+	 * @param settings - QuerySettings applied to the query statement
+	 * @return - int representing the reponse code of the database query
+	 */
+	public int addQueryResultsToList(List<String> list, String query, Object[] args, QuerySettings settings) {
+		ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+
+		int responseCode = runQuery(query, args, settings, rs -> {
+			String strRes = stringUtil.mapToString(rowMapper.mapRow(rs, 0));
+			if (strRes != null)
+				list.add(strRes);
+		});
+
+		if (responseCode == VALID_STATUS_CODE)
+			log.debug("List of query results: " + list.toString());
+
+		return responseCode;
+	}
+
+	/**
+	 * Execute query with its own row limit, fetch size, timeout and isolation,
+	 * passing each row to rowHandler as it is read. The settings only apply to the
+	 * statement of this query, the shared JdbcTemplate of its datasource is left
+	 * untouched
+	 * 
+	 * @param query      - String representing an SQL query
+	 * @param args       - Object array of values bound to the query parameters
+	 * @param settings   - QuerySettings applied to the query statement
+	 * @param rowHandler - RowCallbackHandler called for each row
+	 * @return - int representing the reponse code of the database query
+	 */
+	private int runQuery(String query, Object[] args, QuerySettings settings, RowCallbackHandler rowHandler) {
 		int responseCode = SKIP_STATUS_CODE;
+		String sql = applyIsolation(query, settings.getIsolation());
 
 		try {
-			// Execute query and add results to list
-			jdbcTemplate.setMaxRows(maxRow);
-			jdbcTemplate.queryForList(query).forEach(res -> {
-				String strRes = stringUtil.mapToString(res);
-				if (strRes != null)
-					list.add(strRes);
-			});
+			dataSourceRegistry.getJdbcTemplate(settings.getDatasource()).query(con -> {
+				PreparedStatement ps = con.prepareStatement(sql);
+				ps.setMaxRows(settings.getMaxRows());
+				ps.setQueryTimeout(settings.getTimeoutS());
+				if (settings.getFetchSize() > 0)
+					ps.setFetchSize(settings.getFetchSize());
+				new ArgumentPreparedStatementSetter(args).setValues(ps);
+				return ps;
+			}, rowHandler);
 			responseCode = VALID_STATUS_CODE;
-
-			log.debug("List of query results: " + list.toString());
 		} catch (BadSqlGrammarException e) {
 			// Handling SQL Exception
 			responseCode = e.getSQLException().getErrorCode();
-			log.error("Database Query Helper : SQL Exception in addQueryResultsToList : {}", e.toString(), e);
+			log.error("Database Query Helper : SQL Exception in runQuery : {}", e.toString(), e);
 		} catch (CannotGetJdbcConnectionException e) {
-			log.error("Database Query Helper : Connection Exception in addQueryResultsToList : {}", e.toString(), e);
+			log.error("Database Query Helper : Connection Exception in runQuery : {}", e.toString(), e);
+		} catch (QueryTimeoutException e) {
+			log.error("Database Query Helper : Query timeout after " + settings.getTimeoutS()
+					+ "s in runQuery : {}", e.toString(), e);
 		} catch (Exception e) {
-			log.error("Database Query Helper : Unexpected Exception in addQueryResultsToList : {}", e.toString(), e);
+			log.error("Database Query Helper : Unexpected Exception in runQuery : {}", e.toString(), e);
 		}
 
 		return responseCode;
 	}
 
+	/**
+	 * Parse the named parameters of query, mapping the legacy <<last-run>>
+	 * placeholder to :last_run
+	 * 
+	 * @param query - String representing a configured SQL query
+	 * @return - ParsedSql of query
+	 */
+	private ParsedSql parseScheduledQuery(String query) {
+		return NamedParameterUtils.parseSqlStatement(FILL_DATE.matcher(query).replaceAll(":" + LAST_RUN_PARAM));
+	}
+
+	/**
+	 * Convert lastRunStr to a Timestamp to bind as a query parameter
+	 * 
+	 * @param lastRunStr - String representing the last run in DATE_TIME_FORMAT
+	 * @return - Timestamp of lastRunStr, or null if it is not set
+	 */
+	private Timestamp toTimestamp(String lastRunStr) {
+		if (lastRunStr == null)
+			return null;
+		return Timestamp.valueOf(LocalDateTime.parse(lastRunStr, DateTimeFormatter.ofPattern(DATE_TIME_FORMAT)));
+	}
+
+	/**
+	 * Append "with isolation" to query unless it already ends with an isolation
+	 * clause
+	 * 
+	 * @param query     - String representing an SQL query
+	 * @param isolation - String representing the isolation level (ur, cs, rs or
+	 *                  rr), null to leave query as is
+	 * @return - String representing the query to execute
+	 */
+	private String applyIsolation(String query, String isolation) {
+		if (isolation == null || ISOLATION_CLAUSE.matcher(query).matches())
+			return query;
+
+		return TRAILING_SEMICOLON.matcher(query).replaceAll("").trim() + " with " + isolation.toLowerCase();
+	}
+
+	/**
+	 * Read the execution settings of the query at queryLocation, falling back to
+	 * the db defaults for settings it does not declare
+	 * 
+	 * @param queryLocation - String representing application property location of
+	 *                      the query
+	 * @return - QuerySettings of the query
+	 */
+	private QuerySettings getQuerySettings(String queryLocation) {
+		QuerySettings settings = new QuerySettings();
+
+		boolean streaming = defaultStreaming;
+		if (env.containsProperty(queryLocation + QUERY_STREAMING))
+			streaming = "true".equalsIgnoreCase(env.getProperty(queryLocation + QUERY_STREAMING));
+		settings.setStreaming(streaming);
+
+		settings.setMaxRows(getQuerySetting(queryLocation + QUERY_MAX_ROW, streaming ? streamingMaxRow : maxRow));
+		settings.setFetchSize(
+				getQuerySetting(queryLocation + QUERY_FETCH_SIZE, streaming ? streamingFetchSize : 0));
+		String datasource = env.getProperty(queryLocation + QUERY_DATASOURCE);
+		settings.setDatasource(datasource != null && !datasource.trim().isEmpty() ? datasource.trim() : null);
+
+		// Queries without a timeout take the timeout of their datasource, if any
+		Integer datasourceTimeoutS = dataSourceRegistry.contains(settings.getDatasource())
+				? dataSourceRegistry.getQueryTimeoutS(settings.getDatasource())
+				: null;
+		settings.setTimeoutS(getQuerySetting(queryLocation + QUERY_TIMEOUT,
+				datasourceTimeoutS != null ? datasourceTimeoutS : defaultQueryTimeoutS));
+
+		String isolation = defaultIsolation;
+		if (env.containsProperty(queryLocation + QUERY_ISOLATION))
+			isolation = env.getProperty(queryLocation + QUERY_ISOLATION);
+
+		if (isolation != null && !ISOLATION.matcher(isolation.trim()).matches()) {
+			log.error("Database Query Helper : Ignoring invalid isolation " + isolation + " of " + queryLocation);
+			isolation = null;
+		}
+		settings.setIsolation(isolation != null ? isolation.trim() : null);
+
+		String outputFormat = defaultOutputFormat;
+		if (env.containsProperty(queryLocation + QUERY_OUTPUT_FORMAT))
+			outputFormat = env.getProperty(queryLocation + QUERY_OUTPUT_FORMAT);
+		settings.setColumnar(COLUMNAR_FORMAT.equalsIgnoreCase(outputFormat.trim()));
+
+		return settings;
+	}
+
+	/**
+	 * Read the integer setting at location
+	 * 
+	 * @param location     - String representing application property location of
+	 *                     the setting
+	 * @param defaultValue - int returned when the setting is missing or invalid
+	 * @return - int representing the setting
+	 */
+	private int getQuerySetting(String location, int defaultValue) {
+		if (env.containsProperty(location)) {
+			Integer value = stringUtil.parseInt(env.getProperty(location));
+			if (value != null)
+				return value;
+		}
+		return defaultValue;
+	}
+
 	/**
 	 * Given a list of query res, convert the list to an OutDbQueryRes object and
 	 * send its contents to Splunk
@@ -191,28 +715,68 @@ public class DatabaseExtractionHelper {
 	 * @param elapsedTime  - long representing the time taken for database queries
 	 */
 	public void sendQueryResultsToSplunk(List<String> res, String methodName, int responseCode, long elapsedTime) {
+		sendQueryResultsToSplunk(res.toString(), methodName, responseCode, elapsedTime);
+	}
+
+	/**
+	 * Given query res as a JSON array, convert it to an OutDbQueryRes object and
+	 * send its contents to Splunk
+	 * 
+	 * @param res          - String representing the JSON array of SQL query results
+	 * @param methodName   - String representing method name to identify query
+	 * @param responseCode - int representing response code of the database query
+	 * @param elapsedTime  - long representing the time taken for database queries
+	 */
+	public void sendQueryResultsToSplunk(String res, String methodName, int responseCode, long elapsedTime) {
 		log.info("Starting to send query results to Splunk");
 
 		// Avoid sending res with responseCode SKIP_STATUS_CODE
-		if (responseCode != SKIP_STATUS_CODE) {
-			OutDbQueryRes outDbQueryRes = logHelper.reqHelper(res, methodName, responseCode, elapsedTime);
-			boolean incCounter = false;
+		if (responseCode != SKIP_STATUS_CODE)
+			logDbQueryRes(logHelper.reqHelper(res, methodName, responseCode, elapsedTime));
+		else
+			log.info("Skipping logging process to Splunk with status code: " + responseCode);
 
-			// Convert OutDbQueryRes to JSON and log its results
-			String strOutDbQueryRes = stringUtil.mapToString(outDbQueryRes);
+		log.info("Finished sending query results to Splunk");
+	}
 
-			log.debug("Db Query: " + strOutDbQueryRes);
+	/**
+	 * Given query rows as a JSON array of arrays, convert them with their columns
+	 * to a columnar OutDbQueryRes object and send its contents to Splunk
+	 * 
+	 * @param columns      - List of the column names of the rows
+	 * @param rows         - String representing the JSON array of rows, each an
+	 *                     array of values in column order
+	 * @param methodName   - String representing method name to identify query
+	 * @param responseCode - int representing response code of the database query
+	 * @param elapsedTime  - long representing the time taken for database queries
+	 */
+	public void sendColumnarResultsToSplunk(List<String> columns, String rows, String methodName,
+			int responseCode, long elapsedTime) {
+		log.info("Starting to send columnar query results to Splunk");
 
-			if (strOutDbQueryRes != null)
-				logHelper.logOutResponse(strOutDbQueryRes, incCounter);
-			log.info("Finished extracting database queries");
-		} else {
-			log.info("Skipping logging process to Splunk with status code: " + responseCode);
-		}
+		logDbQueryRes(logHelper.reqHelper(columns, rows, methodName, responseCode, elapsedTime));
 
 		log.info("Finished sending query results to Splunk");
 	}
 
+	/**
+	 * Convert outDbQueryRes to JSON and log it to be sent to Splunk
+	 * 
+	 * @param outDbQueryRes - OutDbQueryRes representing the query results
+	 */
+	private void logDbQueryRes(OutDbQueryRes outDbQueryRes) {
+		boolean incCounter = false;
+
+		// Convert OutDbQueryRes to JSON and log its results
+		String strOutDbQueryRes = stringUtil.mapToString(outDbQueryRes);
+
+		log.debug("Db Query: " + strOutDbQueryRes);
+
+		if (strOutDbQueryRes != null)
+			logHelper.logOutResponse(strOutDbQueryRes, incCounter, OutputRouter.DATABASE);
+		log.info("Finished extracting database queries");
+	}
+
 	/**
 	 * Calculates the last time a scheduled database query was run
 	 * 
@@ -0,0 +1,210 @@
+package com.loblaw.metrics.helper;
+
+import java.util.Arrays;
+
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.shared.model.AppReq;
+
+/**
+ * Drops application metric events seen before within a time window, keyed by
+ * projectName, methodName and requestId. Events without a requestId are never
+ * duplicates.
+ *
+ * Keys are kept as 64 bit hashes in two generations of fixed size: an event is
+ * a duplicate if its hash is in either. The current generation becomes the
+ * previous one once it is windowMs old or holds maxEntries hashes, so an event
+ * is remembered for at least windowMs unless more than maxEntries events arrive
+ * in that time, and memory stays under eight longs per entry.
+ *
+ * An event is recorded when it is first seen, so a retry arriving while it is
+ * still being written is dropped too. An event that then fails to be written
+ * must be forgotten, or its retries would be dropped as duplicates and the
+ * event lost.
+ */
+public class EventDeduplicator {
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long windowMs;
+	private final int maxEntries;
+	private final CounterInfoService duplicateCounter;
+
+	private HashGeneration current;
+	private HashGeneration previous;
+	private long generationStart;
+
+	/**
+	 * @param windowMs         - long representing the milliseconds an event is
+	 *                         remembered, 0 to keep every event
+	 * @param maxEntries       - int representing the events remembered per
+	 *                         generation
+	 * @param duplicateCounter - CounterInfoService counting dropped duplicates
+	 */
+	public EventDeduplicator(long windowMs, int maxEntries, CounterInfoService duplicateCounter) {
+		this.windowMs = windowMs;
+		this.maxEntries = Math.max(1, maxEntries);
+		this.duplicateCounter = duplicateCounter;
+
+		if (windowMs > 0) {
+			this.current = new HashGeneration(this.maxEntries);
+			this.previous = new HashGeneration(this.maxEntries);
+			this.generationStart = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Record appReq and tell whether the same event was already seen within the
+	 * window, counting it if so
+	 *
+	 * @param appReq - AppReq representing the event
+	 * @return - true if appReq is a duplicate and must be dropped
+	 */
+	public boolean isDuplicate(AppReq appReq) {
+		if (windowMs <= 0 || appReq.getRequestId() == null || appReq.getRequestId().isEmpty())
+			return false;
+
+		long hash = hash(appReq.getProjectName(), appReq.getMethodName(), appReq.getRequestId());
+		boolean duplicate;
+
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+
+			if (now - generationStart >= windowMs || current.size() >= maxEntries) {
+				// The previous generation is past the window, reuse its table
+				HashGeneration expired = previous;
+				expired.clear();
+				previous = current;
+				current = expired;
+				// After a quiet period the current generation is past the window too
+				if (now - generationStart >= 2 * windowMs)
+					previous.clear();
+				generationStart = now;
+			}
+
+			duplicate = previous.contains(hash) || !current.add(hash);
+		}
+
+		if (duplicate)
+			duplicateCounter.incCounter();
+		return duplicate;
+	}
+
+	/**
+	 * Forget appReq after it failed to be written, so a retry of it is sent
+	 *
+	 * @param appReq - AppReq representing the event recorded by isDuplicate
+	 */
+	public void forget(AppReq appReq) {
+		if (windowMs <= 0 || appReq.getRequestId() == null || appReq.getRequestId().isEmpty())
+			return;
+
+		long hash = hash(appReq.getProjectName(), appReq.getMethodName(), appReq.getRequestId());
+
+		synchronized (this) {
+			// The generation it was recorded in may have become the previous one since
+			current.remove(hash);
+			previous.remove(hash);
+		}
+	}
+
+	/**
+	 * FNV-1a hash of the key fields, each followed by a separator so fields
+	 * cannot run into each other
+	 */
+	private long hash(String... fields) {
+		long hash = FNV_OFFSET;
+
+		for (String field : fields) {
+			if (field != null) {
+				for (int i = 0; i < field.length(); i++) {
+					char c = field.charAt(i);
+					hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+					hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+				}
+			}
+			hash = (hash ^ 0x1f) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Open addressing set of hashes, at most half full. 0 marks an empty slot so a
+	 * hash of 0 is stored as 1
+	 */
+	private static class HashGeneration {
+		private final long[] slots;
+		private final int mask;
+		private int size = 0;
+
+		private HashGeneration(int maxEntries) {
+			int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+			this.slots = new long[capacity];
+			this.mask = capacity - 1;
+		}
+
+		private boolean contains(long hash) {
+			long key = hash == 0 ? 1 : hash;
+
+			for (int i = index(key); slots[i] != 0; i = (i + 1) & mask) {
+				if (slots[i] == key)
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return - false if hash was already present
+		 */
+		private boolean add(long hash) {
+			long key = hash == 0 ? 1 : hash;
+			int i = index(key);
+
+			for (; slots[i] != 0; i = (i + 1) & mask) {
+				if (slots[i] == key)
+					return false;
+			}
+
+			slots[i] = key;
+			size++;
+			return true;
+		}
+
+		/**
+		 * Remove hash, moving back the hashes probed after it so none is left
+		 * behind an empty slot
+		 */
+		private void remove(long hash) {
+			long key = hash == 0 ? 1 : hash;
+			int hole = index(key);
+
+			for (; slots[hole] != key; hole = (hole + 1) & mask) {
+				if (slots[hole] == 0)
+					return;
+			}
+
+			for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+				// A hash can fill the hole if the hole lies between its home slot and i
+				if (((i - index(slots[i])) & mask) >= ((i - hole) & mask)) {
+					slots[hole] = slots[i];
+					hole = i;
+				}
+			}
+
+			slots[hole] = 0;
+			size--;
+		}
+
+		private int size() {
+			return size;
+		}
+
+		private void clear() {
+			Arrays.fill(slots, 0);
+			size = 0;
+		}
+
+		private int index(long key) {
+			return (int) (key ^ (key >>> 32)) & mask;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.loblaw.metrics.helper;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Incremental decoder for actuator health response bodies. Only the top level
+ * status and error, and the first error nested under a details object are
+ * read. Decoding stops as soon as those are found, the root object closes or
+ * maxBytes have been read, and the rest of the body is never buffered.
+ *
+ * A decoder holds the parser state of a single response and must not be
+ * shared.
+ */
+@Slf4j
+public class HealthBodyDecoder {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final String STATUS = "status";
+	private static final String ERROR = "error";
+	private static final String DETAILS = "details";
+	private static final String ARRAY = "[";
+
+	private final int maxBytes;
+	private final String applicationName;
+	private final JsonParser parser;
+	private final ByteArrayFeeder feeder;
+
+	// Field names of the objects currently open, root object first
+	private final Deque<String> path = new ArrayDeque<>();
+
+	private String fieldName;
+	private String status;
+	private String error;
+	private String detailsError;
+	private long bytesRead = 0;
+	private boolean done = false;
+
+	public HealthBodyDecoder(int maxBytes, String applicationName) throws IOException {
+		this.maxBytes = maxBytes;
+		this.applicationName = applicationName;
+		this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * Decode body into an ApplicationHealth populated with status and error only.
+	 * The upstream body is cancelled once enough has been read. An empty body
+	 * decodes to an ApplicationHealth without status or error rather than to
+	 * nothing, so the application is judged on its HTTP status alone.
+	 *
+	 * @param body            - Flux of DataBuffer representing the response body
+	 * @param maxBytes        - int representing the maximum number of bytes to
+	 *                        read from body
+	 * @param applicationName - String representing the application for logging
+	 * @return - a Mono containing the decoded ApplicationHealth
+	 */
+	public static Mono<ApplicationHealth> decode(Flux<DataBuffer> body, int maxBytes, String applicationName) {
+		return Mono.fromCallable(() -> new HealthBodyDecoder(maxBytes, applicationName))
+				.flatMap(decoder -> body.takeUntil(decoder::feed).then(Mono.fromCallable(decoder::getResult)));
+	}
+
+	/**
+	 * Feed the next chunk of the body to the parser, releasing the buffer
+	 *
+	 * @param buffer - DataBuffer representing the next chunk of the body
+	 * @return - true if no more input is needed, false otherwise
+	 */
+	boolean feed(DataBuffer buffer) {
+		try {
+			if (done)
+				return true;
+
+			int length = (int) Math.min(buffer.readableByteCount(), maxBytes - bytesRead);
+			byte[] bytes = new byte[length];
+			buffer.read(bytes);
+			bytesRead += length;
+
+			feeder.feedInput(bytes, 0, length);
+			parseAvailable();
+
+			if (!done && bytesRead >= maxBytes) {
+				log.debug(applicationName + ": Health response exceeded " + maxBytes + " bytes, stopped reading");
+				done = true;
+			}
+		} catch (IOException e) {
+			log.error("Health Body Decoder : JSON parse exception in feed : {}", e.toString(), e);
+			done = true;
+		} finally {
+			DataBufferUtils.release(buffer);
+		}
+		return done;
+	}
+
+	/**
+	 * Build the decoded ApplicationHealth, preferring the top level error over an
+	 * error found in the details
+	 *
+	 * @return - ApplicationHealth with status and error set
+	 */
+	ApplicationHealth getResult() {
+		ApplicationHealth response = new ApplicationHealth();
+		response.setStatus(status);
+		response.setError(error != null ? error : detailsError);
+
+		try {
+			parser.close();
+		} catch (IOException e) {
+			log.debug(applicationName + ": Unable to close health parser - " + e.getMessage());
+		}
+		return response;
+	}
+
+	/**
+	 * Consume every token currently available from the fed input
+	 *
+	 * @throws IOException when the body is not valid JSON
+	 */
+	private void parseAvailable() throws IOException {
+		JsonToken token;
+
+		while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			switch (token) {
+			case FIELD_NAME:
+				fieldName = parser.getCurrentName();
+				break;
+			case START_OBJECT:
+				path.push(fieldName == null ? "" : fieldName);
+				fieldName = null;
+				break;
+			case END_OBJECT:
+				path.pop();
+				// The root object is closed, nothing left to read
+				if (path.isEmpty())
+					done = true;
+				break;
+			case START_ARRAY:
+				// Arrays never hold the fields of interest, only track their nesting
+				path.push(ARRAY);
+				fieldName = null;
+				break;
+			case END_ARRAY:
+				path.pop();
+				break;
+			default:
+				if (token.isScalarValue())
+					readScalar();
+				fieldName = null;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Keep the scalar value if it is the root status, root error or the first
+	 * error nested under a details object
+	 *
+	 * @throws IOException when the value cannot be read
+	 */
+	private void readScalar() throws IOException {
+		if (fieldName == null)
+			return;
+
+		if (path.size() == 1) {
+			if (STATUS.equals(fieldName))
+				status = parser.getValueAsString();
+			else if (ERROR.equals(fieldName))
+				error = parser.getValueAsString();
+		} else if (detailsError == null && ERROR.equals(fieldName) && DETAILS.equals(path.peek())) {
+			detailsError = parser.getValueAsString();
+		}
+
+		// Everything needed has been read
+		if (status != null && (error != null || detailsError != null))
+			done = true;
+	}
+}
@@ -1,12 +1,16 @@
 package com.loblaw.metrics.helper;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -25,7 +29,7 @@ import com.loblaw.metrics.shared.util.WebClientFlatMapInterface;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
 /**
  * Util Helper to help extract application health details
@@ -52,6 +56,16 @@ public class HealthHelper {
 	@Autowired
 	private RestCallUtil restCallUtil;
 
+	@Autowired
+	private HeartbeatRegistry heartbeatRegistry;
+
+	@Autowired
+	@Qualifier("health-scheduler")
+	private Scheduler healthScheduler;
+
+	@Value("${application.health-body.max-bytes:65536}")
+	private Integer maxHealthBodyBytes;
+
 	private static final String APPLICATION_ENDPOINT = "application.endpoint.";
 	private static final String HEADER = ".header";
 	private static final String APPLICATION_ENDPOINT_NAME = ".name";
@@ -66,20 +80,22 @@ public class HealthHelper {
 	 * 
 	 * @param endpoints - List of String used to identify Health end points from
 	 *                  properties
-	 * @return a String containing the application name, application health, HTTP
-	 *         status, error message, and details
+	 * @return a Map of application name to application health, HTTP status, error
+	 *         message, and details
 	 */
-	public String extractHealth(List<String> endpoints) {
-		String output = "";
-
-		// Makes parallel REST calls to application health end points
-		List<ApplicationHealth> appHealthList = Flux.fromIterable(endpoints).parallel()
-				.runOn(Schedulers.boundedElastic()).flatMap(this::getHealth)
+	public Map<String, ApplicationHealth> extractHealth(List<String> endpoints) {
+		Map<String, ApplicationHealth> output = new LinkedHashMap<>();
+
+		// Makes parallel REST calls to application health end points, bounded by the
+		// health executor
+		List<ApplicationHealth> appHealthList = Flux.fromIterable(endpoints)
+				.flatMap(endpointId -> Mono.defer(() -> getHealth(endpointId))
+						.subscribeOn(healthScheduler))
 				.collectSortedList((i, j) -> j.getApplicationName().compareTo(i.getApplicationName())).block();
 
-		// Formats application health data into key value pairs
+		// Key application health data by application name
 		for (ApplicationHealth appHealth : appHealthList) {
-			output += String.format("\"%s\": %s, ", appHealth.getApplicationName(), stringUtil.mapToString(appHealth));
+			output.put(appHealth.getApplicationName(), appHealth);
 		}
 		return output;
 	}
@@ -114,12 +130,19 @@ public class HealthHelper {
 			applicationName = env.getProperty(applicationNameLocation);
 			applicationHealth.setApplicationName(applicationName);
 
+			// Applications pushing heartbeats are only probed once their heartbeat expires
+			ApplicationHealth heartbeatHealth = heartbeatRegistry.getFreshHealth(applicationName);
+			if (heartbeatHealth != null) {
+				log.debug(applicationName + ": Using pushed heartbeat instead of probing");
+				return Mono.just(normaliseHeartbeat(heartbeatHealth));
+			}
+
 			endpoint = env.getProperty(applicationEndpointLocation);
 
 			// withDetails set to false unless WITH_DETAILS property is "true"
 			log.debug(applicationName + ": Setting withDetails");
 			String strWithDetails = env.getProperty(applicationDetailsLocation);
-			if (strWithDetails == "true") {
+			if ("true".equalsIgnoreCase(strWithDetails)) {
 				withDetails = true;
 			}
 
@@ -131,7 +154,8 @@ public class HealthHelper {
 			long startTime = System.currentTimeMillis();
 
 			// REST call to endpoint
-			Mono<ApplicationHealth> appHealthMono = webClientGetApplicationHealth(endpoint, applicationHealth, entity);
+			Mono<ApplicationHealth> appHealthMono = webClientGetApplicationHealth(endpoint, applicationHealth, entity,
+					withDetails);
 
 			ApplicationHealth response = appHealthMono.block();
 
@@ -153,16 +177,20 @@ public class HealthHelper {
 
 	/**
 	 * Make a REST call to endpoint using WebClient. Set the GET request headers
-	 * using entity, and set applicationHealth HttpStatus using the response
+	 * using entity, and set applicationHealth HttpStatus using the response. The
+	 * whole body is only decoded when withDetails is true, otherwise only the
+	 * status and first error are streamed out of it
 	 * 
 	 * @param endpoint          - String representing endpoint to make REST call on
 	 * @param applicationHealth - ApplicationHealth containing the application name
 	 *                          and used to store the HTTP Response
 	 * @param entity            - Entity containing the HTTP Headers
+	 * @param withDetails       - boolean representing whether the response details
+	 *                          are required
 	 * @return - a Mono response containing an ApplicationHealth object
 	 */
 	private Mono<ApplicationHealth> webClientGetApplicationHealth(String endpoint, ApplicationHealth applicationHealth,
-			HttpEntity<String> entity) {
+			HttpEntity<String> entity, boolean withDetails) {
 		WebClientErrorInterface<ApplicationHealth> wCE = error -> {
 			ApplicationHealth response = new ApplicationHealth();
 			// Sets ApplicationHealth error message
@@ -185,7 +213,10 @@ public class HealthHelper {
 				log.info(applicationHealth.getApplicationName() + ": Client response exists");
 				// Extracts HttpCode and sets it to the applicationHealth object
 				applicationHealth.setHttpCode(clientResponse.rawStatusCode());
-				return clientResponse.bodyToMono(ApplicationHealth.class);
+				if (withDetails)
+					return clientResponse.bodyToMono(ApplicationHealth.class);
+				return HealthBodyDecoder.decode(clientResponse.bodyToFlux(DataBuffer.class), maxHealthBodyBytes,
+						applicationHealth.getApplicationName());
 			} else {
 				log.info(applicationHealth.getApplicationName() + ": Client response is null");
 				return Mono.just(new ApplicationHealth());
@@ -195,6 +226,35 @@ public class HealthHelper {
 		return restCallUtil.getWebClient(endpoint, applicationHealth, entity, webClient, wCFM, wCE);
 	}
 
+	/**
+	 * Get the health of every application that has pushed a heartbeat, set the
+	 * same way as the health of probed applications
+	 * 
+	 * @return - Map of application name to application health
+	 */
+	public Map<String, ApplicationHealth> getHeartbeatHealth() {
+		Map<String, ApplicationHealth> output = new LinkedHashMap<>();
+
+		for (Map.Entry<String, ApplicationHealth> entry : heartbeatRegistry.getHealth().entrySet())
+			output.put(entry.getKey(), normaliseHeartbeat(entry.getValue()));
+		return output;
+	}
+
+	/**
+	 * Set the health of an application from its heartbeat as a response carrying
+	 * a status, so its status is UP or DOWN and its error NA when there is none
+	 * 
+	 * @param heartbeatHealth - ApplicationHealth representing the last heartbeat
+	 * @return - ApplicationHealth of the application
+	 */
+	private ApplicationHealth normaliseHeartbeat(ApplicationHealth heartbeatHealth) {
+		ApplicationHealth applicationHealth = new ApplicationHealth();
+		applicationHealth.setApplicationName(heartbeatHealth.getApplicationName());
+
+		setApplicationHealth(applicationHealth, heartbeatHealth, true, false);
+		return applicationHealth;
+	}
+
 	/**
 	 * Sets the attributes of applicationHealth given the value of response
 	 * 
@@ -351,9 +411,9 @@ public class HealthHelper {
 	/**
 	 * Extract the application health of services
 	 * 
-	 * @return JSON representing the status of services
+	 * @return Map of service name to the status of the service
 	 */
-	public String getServiceHealth() {
+	public Map<String, ApplicationHealth> getServiceHealth() {
 		String serviceEndpoint = SERVICE_ENDPOINT + SERVICE_TOTAL_ENDPOINT;
 
 		Integer totalService = 0;
@@ -382,7 +442,8 @@ public class HealthHelper {
 		long elapsedTime = finishTime - startTime;
 
 		log.debug("Total time for processing services is: " + elapsedTime);
-		String strServices = "{";
+		Map<String, ApplicationHealth> serviceHealth = new LinkedHashMap<>();
+		String strProcesses = processes.toString();
 
 		// Iterate through the TC servers and set their status to UP only if it's
 		// process is running
@@ -393,20 +454,16 @@ public class HealthHelper {
 			// Set application name as base name
 			String appName = stringUtil.getBaseName(service);
 
-			if (processes.toString().contains(service)) {
+			if (strProcesses.contains(service)) {
 				appHealth.setStatus("UP");
 			} else {
 				appHealth.setStatus("DOWN");
 			}
 
-			String strAppHealth = stringUtil.mapToString(appHealth);
-
-			if (strAppHealth != null)
-				strServices += "\"" + appName + "\": " + stringUtil.mapToString(appHealth) + ",";
+			serviceHealth.put(appName, appHealth);
 		}
 
-		strServices = strServices.replaceAll(",$", "") + "}";
 		log.info("Finished extracting service health");
-		return strServices;
+		return serviceHealth;
 	}
 }
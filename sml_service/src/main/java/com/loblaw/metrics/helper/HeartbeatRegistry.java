@@ -0,0 +1,129 @@
+package com.loblaw.metrics.helper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpStatus;
+
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In memory table of the last heartbeat pushed by each application. An
+ * application whose last heartbeat is older than the TTL is reported DOWN with
+ * a 504 HTTP code, as an application timing out on a probe is. A heartbeat
+ * within the TTL has a 200 HTTP code, its status upper cased.
+ */
+@Slf4j
+public class HeartbeatRegistry {
+	private static final String DOWN_STATUS = "DOWN";
+
+	private final long ttlMs;
+	private final int maxApplications;
+	private final Map<String, LastSeen> lastSeen = new ConcurrentHashMap<>();
+
+	public HeartbeatRegistry(long ttlMs, int maxApplications) {
+		this.ttlMs = ttlMs;
+		this.maxApplications = maxApplications;
+	}
+
+	/**
+	 * Record heartbeats as the last seen health of their applications. Heartbeats
+	 * without an application name or status, or from new applications once
+	 * maxApplications are tracked, are dropped.
+	 *
+	 * @param heartbeats - List of HealthHeartbeat pushed by applications
+	 * @return - int representing the number of heartbeats recorded
+	 */
+	public int record(List<HealthHeartbeat> heartbeats) {
+		long now = System.currentTimeMillis();
+		int recorded = 0;
+
+		for (HealthHeartbeat heartbeat : heartbeats) {
+			String applicationName = heartbeat.getApplicationName();
+			if (applicationName == null || applicationName.isEmpty() || heartbeat.getStatus() == null)
+				continue;
+
+			if (!lastSeen.containsKey(applicationName) && lastSeen.size() >= maxApplications) {
+				log.error("Heartbeat Registry : Dropped heartbeat of " + applicationName + ", already tracking "
+						+ maxApplications + " applications");
+				continue;
+			}
+
+			lastSeen.put(applicationName,
+					new LastSeen(heartbeat.getStatus().trim().toUpperCase(), heartbeat.getError(), now));
+			recorded++;
+		}
+		return recorded;
+	}
+
+	/**
+	 * Get the health of applicationName from its last heartbeat if it is within
+	 * the TTL
+	 *
+	 * @param applicationName - String representing the application name
+	 * @return - ApplicationHealth of the last heartbeat, or null when there is no
+	 *         heartbeat within the TTL
+	 */
+	public ApplicationHealth getFreshHealth(String applicationName) {
+		LastSeen seen = lastSeen.get(applicationName);
+
+		if (seen == null || System.currentTimeMillis() - seen.receivedAt > ttlMs)
+			return null;
+		return seen.toApplicationHealth(applicationName);
+	}
+
+	/**
+	 * Get the health of every application that has pushed a heartbeat, reporting
+	 * applications DOWN when their last heartbeat is older than the TTL
+	 *
+	 * @return - Map of application name to application health
+	 */
+	public Map<String, ApplicationHealth> getHealth() {
+		long now = System.currentTimeMillis();
+		Map<String, ApplicationHealth> health = new TreeMap<>();
+
+		for (Map.Entry<String, LastSeen> entry : lastSeen.entrySet()) {
+			LastSeen seen = entry.getValue();
+			long ageMs = now - seen.receivedAt;
+
+			if (ageMs <= ttlMs) {
+				health.put(entry.getKey(), seen.toApplicationHealth(entry.getKey()));
+			} else {
+				ApplicationHealth expired = new ApplicationHealth();
+				expired.setApplicationName(entry.getKey());
+				expired.setStatus(DOWN_STATUS);
+				expired.setHttpCode(HttpStatus.GATEWAY_TIMEOUT.value());
+				expired.setError("No heartbeat for " + TimeUnit.MILLISECONDS.toSeconds(ageMs) + "s");
+				health.put(entry.getKey(), expired);
+			}
+		}
+		return health;
+	}
+
+	private static class LastSeen {
+		private final String status;
+		private final String error;
+		private final long receivedAt;
+
+		private LastSeen(String status, String error, long receivedAt) {
+			this.status = status;
+			this.error = error;
+			this.receivedAt = receivedAt;
+		}
+
+		private ApplicationHealth toApplicationHealth(String applicationName) {
+			ApplicationHealth applicationHealth = new ApplicationHealth();
+			applicationHealth.setApplicationName(applicationName);
+			applicationHealth.setStatus(status);
+			applicationHealth.setHttpCode(HttpStatus.OK.value());
+			applicationHealth.setError(error);
+			return applicationHealth;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.loblaw.metrics.helper;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rows of one page of an incremental query, read in ascending order of the
+ * watermark column. Rows sharing the greatest value read are held back until
+ * the page is finished: when the page is full more rows may share that value
+ * beyond it, so they are left to the next page, which reads from the greatest
+ * value below it. The page is out of order if a value is below the one before
+ * it, in which case its watermark cannot be trusted.
+ */
+class IncrementalPage {
+	private final int pageSize;
+
+	private long read;
+	private boolean ordered = true;
+	private boolean split;
+
+	// Rows below the greatest value read, always part of the page
+	private Object watermark;
+	private long rows;
+	private final Map<String, BigDecimal> sums = new LinkedHashMap<>();
+
+	// Rows sharing the greatest value read
+	private Object boundary;
+	private long boundaryRows;
+	private final Map<String, BigDecimal> boundarySums = new LinkedHashMap<>();
+
+	/**
+	 * @param pageSize - int representing the rows the page query returns at most
+	 */
+	IncrementalPage(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Add a row to the page. Sums of the row are added with addSum after it
+	 *
+	 * @param value - Long or Timestamp read from the watermark column, null if the
+	 *              column is null
+	 */
+	void addRow(Object value) {
+		read++;
+
+		if (value != null) {
+			int compared = boundary == null ? 1 : compare(value, boundary);
+			if (compared < 0)
+				ordered = false;
+			else if (compared > 0)
+				commitBoundary(value);
+		}
+
+		if (boundary == null)
+			rows++;
+		else
+			boundaryRows++;
+	}
+
+	/**
+	 * Add the value of a summed column to the row last added
+	 *
+	 * @param column - String representing the summed column
+	 * @param value  - BigDecimal read from the column
+	 */
+	void addSum(String column, BigDecimal value) {
+		(boundary == null ? sums : boundarySums).merge(column, value, BigDecimal::add);
+	}
+
+	/**
+	 * Finish the page, keeping the rows sharing the greatest value if the page was
+	 * not full, or if they are the only rows with a value so leaving them would
+	 * never advance the watermark
+	 */
+	void finish() {
+		if (boundary == null)
+			return;
+
+		if (!isFull() || watermark == null) {
+			split = isFull();
+			commitBoundary(null);
+		}
+	}
+
+	/**
+	 * @return - long representing the rows returned by the page query
+	 */
+	long getRead() {
+		return read;
+	}
+
+	/**
+	 * @return - true if the page query returned page-size rows, meaning more rows
+	 *         may follow
+	 */
+	boolean isFull() {
+		return read >= pageSize;
+	}
+
+	/**
+	 * @return - false if a row was read with a value below the row before it
+	 */
+	boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * @return - true if every row with a value shared it on a full page, so rows
+	 *         sharing it beyond the page are skipped
+	 */
+	boolean isSplit() {
+		return split;
+	}
+
+	/**
+	 * @return - Long or Timestamp of the greatest value of the rows kept, null if
+	 *         none had a value
+	 */
+	Object getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * @return - long representing the rows kept
+	 */
+	long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return - Map of the sum of each summed column of the rows kept
+	 */
+	Map<String, BigDecimal> getSums() {
+		return sums;
+	}
+
+	private void commitBoundary(Object next) {
+		if (boundary != null) {
+			watermark = boundary;
+			rows += boundaryRows;
+			boundarySums.forEach((column, sum) -> sums.merge(column, sum, BigDecimal::add));
+		}
+
+		boundary = next;
+		boundaryRows = 0;
+		boundarySums.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int compare(Object value, Object other) {
+		return ((Comparable<Object>) value).compareTo(other);
+	}
+}
@@ -273,7 +273,7 @@ public class LogExtractionHelper {
 		// log strLog to file
 
 		if (strLog != null) {
-			logHelper.logOutResponse(strLog, incCounter);
+			logHelper.logOutResponse(strLog, incCounter, OutputRouter.LOGS);
 
 			log.debug("Message: " + message);
 
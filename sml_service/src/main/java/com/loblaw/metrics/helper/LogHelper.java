@@ -5,18 +5,25 @@ package com.loblaw.metrics.helper;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.loblaw.metrics.config.SmlProperties;
+import com.loblaw.metrics.model.StoreMetadata;
 import com.loblaw.metrics.service.CounterInfoService;
 import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.model.OutAppHealthRes;
 import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.model.OutAppSummaryRes;
 import com.loblaw.metrics.shared.model.OutContainerRes;
 import com.loblaw.metrics.shared.model.OutDataRes;
 import com.loblaw.metrics.shared.model.OutDbQueryRes;
@@ -32,21 +39,33 @@ import com.loblaw.metrics.shared.model.OutLogRes;
 public class LogHelper {
 
 	private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+	private static final JsonStringEncoder jsonEncoder = JsonStringEncoder.getInstance();
+
+	// Length of the fixed parts of a pass-through envelope with its date and id
+	private static final int DATA_ENVELOPE_BYTES = 96;
 
-	private String date = null;
-	private String uniqueId = null;
-	private String hostName = null;
-	private String ipAddress = null;
+	// Store fields of pass-through envelopes following the store metadata they
+	// were serialized from
+	private volatile String[] dataStoreFields = null;
 
 	@Autowired
 	private SmlProperties smlProperties;
 
+	@Autowired
+	private StoreMetadata storeMetadata;
+
 	@Autowired
 	private AppRequestMapper mapper;
 
 	@Autowired
 	private Logger logger;
 
+	@Autowired
+	private OutputRouter outputRouter;
+
+	@Autowired
+	private OutputSpool outputSpool;
+
 	@Autowired
 	@Qualifier("in-counter")
 	private CounterInfoService inCounter;
@@ -55,6 +74,14 @@ public class LogHelper {
 	@Qualifier("out-counter")
 	private CounterInfoService outCounter;
 
+	/**
+	 * Replay spooled messages into the output they were meant for
+	 */
+	@PostConstruct
+	public void init() {
+		outputSpool.setSink(this::writeOutput);
+	}
+
 	/**
 	 * Map appReq to an OutAppReq response with additional attributes
 	 * 
@@ -65,13 +92,18 @@ public class LogHelper {
 		// Map appReq to outAppReq
 		OutAppReq outAppReq = mapper.appReqToOutAppReq(appReq);
 
-		setDateIdStore();
+		DateIdStore stamp = setDateIdStore();
 
 		// Calculated Fields
-		outAppReq.setDateTime(date);
-		outAppReq.setUniqueid(uniqueId);
-		outAppReq.setHost(hostName);
-		outAppReq.setIpAddress(ipAddress);
+		outAppReq.setDateTime(stamp.date);
+		outAppReq.setUniqueid(stamp.uniqueId);
+		outAppReq.setHost(stamp.hostName);
+		outAppReq.setIpAddress(stamp.ipAddress);
+		outAppReq.setBuildVersion(stamp.buildVersion);
+
+		// Keep the province the application sent
+		if (outAppReq.getProvince() == null || outAppReq.getProvince().isEmpty())
+			outAppReq.setProvince(stamp.province);
 
 		return outAppReq;
 	}
@@ -86,12 +118,14 @@ public class LogHelper {
 	public OutDataRes reqHelper(String message) {
 		OutDataRes outDataRes = new OutDataRes();
 
-		setDateIdStore();
+		DateIdStore stamp = setDateIdStore();
 
 		// Calculated Fields
-		outDataRes.setDateTime(date);
-		outDataRes.setUniqueid(uniqueId);
-		outDataRes.setStore(hostName);
+		outDataRes.setDateTime(stamp.date);
+		outDataRes.setUniqueid(stamp.uniqueId);
+		outDataRes.setStore(stamp.hostName);
+		outDataRes.setBuildVersion(stamp.buildVersion);
+		outDataRes.setProvince(stamp.province);
 		outDataRes.setMessage(message);
 
 		return outDataRes;
@@ -106,17 +140,34 @@ public class LogHelper {
 	 * @return - an OutDbQueryRes representing database query results wrapped with
 	 *         additional details
 	 */
-	public OutDbQueryRes reqHelper(List<String> queryResults, String methodName, int responseCode, long elapsedTime) {
+	public OutDbQueryRes reqHelper(List<String> queryResults, String methodName, int responseCode,
+			long elapsedTime) {
+		return reqHelper(queryResults.toString(), methodName, responseCode, elapsedTime);
+	}
+
+	/**
+	 * Takes queryResults as a JSON array and wraps it as an OutDbQueryRes with
+	 * additional fields for time, unique id, store number, and build version
+	 * 
+	 * @param queryResults - String representing the JSON array of database query
+	 *                     results
+	 * @param methodName   - String representing the query that was run
+	 * @return - an OutDbQueryRes representing database query results wrapped with
+	 *         additional details
+	 */
+	public OutDbQueryRes reqHelper(String queryResults, String methodName, int responseCode, long elapsedTime) {
 		OutDbQueryRes outDbQueryRes = new OutDbQueryRes();
 
-		setDateIdStore();
+		DateIdStore stamp = setDateIdStore();
 
 		// Calculated Fields
-		outDbQueryRes.setDateTime(date);
-		outDbQueryRes.setUniqueid(uniqueId);
-		outDbQueryRes.setStore(hostName);
+		outDbQueryRes.setDateTime(stamp.date);
+		outDbQueryRes.setUniqueid(stamp.uniqueId);
+		outDbQueryRes.setStore(stamp.hostName);
+		outDbQueryRes.setBuildVersion(stamp.buildVersion);
+		outDbQueryRes.setProvince(stamp.province);
 
-		outDbQueryRes.setQueryResults(queryResults.toString());
+		outDbQueryRes.setQueryResults(queryResults);
 		outDbQueryRes.setMethodName(methodName);
 		outDbQueryRes.setResponseTime((int) elapsedTime);
 		outDbQueryRes.setResponseCode(responseCode);
@@ -124,6 +175,28 @@ public class LogHelper {
 		return outDbQueryRes;
 	}
 
+	/**
+	 * Takes the columns and rows of a query and wraps them as a columnar
+	 * OutDbQueryRes with additional fields for time, unique id, store number, and
+	 * build version
+	 * 
+	 * @param columns    - List of the column names of the rows
+	 * @param rows       - String representing the JSON array of rows, each an array
+	 *                   of values in column order
+	 * @param methodName - String representing the query that was run
+	 * @return - an OutDbQueryRes representing database query results wrapped with
+	 *         additional details
+	 */
+	public OutDbQueryRes reqHelper(List<String> columns, String rows, String methodName, int responseCode,
+			long elapsedTime) {
+		OutDbQueryRes outDbQueryRes = reqHelper((String) null, methodName, responseCode, elapsedTime);
+
+		outDbQueryRes.setColumns(columns);
+		outDbQueryRes.setRows(rows);
+
+		return outDbQueryRes;
+	}
+
 	/**
 	 * Maps a message, filePath, and searchKeyword to an OutLogRes
 	 * 
@@ -135,11 +208,13 @@ public class LogHelper {
 	public OutLogRes logReqHelper(String message, String filePath) {
 		OutLogRes outLogRes = new OutLogRes();
 
-		setDateIdStore();
+		DateIdStore stamp = setDateIdStore();
 
 		// Calculated Fields
-		outLogRes.setDateTime(date);
-		outLogRes.setStore(hostName);
+		outLogRes.setDateTime(stamp.date);
+		outLogRes.setStore(stamp.hostName);
+		outLogRes.setBuildVersion(stamp.buildVersion);
+		outLogRes.setProvince(stamp.province);
 		outLogRes.setMessage(message);
 		outLogRes.setFileName(filePath);
 
@@ -154,24 +229,66 @@ public class LogHelper {
 	 * @param methodName      - String name of the type of response
 	 */
 	public void updateOutContainerRes(OutContainerRes outContainerRes, String methodName) {
-		setDateIdStore();
+		DateIdStore stamp = setDateIdStore();
 
 		// Calculated Fields
 		outContainerRes.setMethodName(methodName);
-		outContainerRes.setDateTime(date);
-		outContainerRes.setStore(hostName);
+		outContainerRes.setDateTime(stamp.date);
+		outContainerRes.setStore(stamp.hostName);
+		outContainerRes.setBuildVersion(stamp.buildVersion);
+		outContainerRes.setProvince(stamp.province);
 	}
 
 	/**
-	 * Set static variables of date to the current time, uniqueId to a random unique
-	 * id, store to the current store number, and buildVersion to the store's
-	 * extracted build version
+	 * Update outAppHealthRes with methodName, date, unique id, host and IP address
+	 * 
+	 * @param outAppHealthRes - OutAppHealthRes representing application health
+	 *                        response to update
+	 * @param methodName      - String name of the type of response
 	 */
-	private void setDateIdStore() {
-		date = dateFormat.format(LocalDateTime.now());
-		uniqueId = UUID.randomUUID().toString();
-		hostName = smlProperties.getHostName();
-		ipAddress = smlProperties.getIpAddress();
+	public void updateOutAppHealthRes(OutAppHealthRes outAppHealthRes, String methodName) {
+		DateIdStore stamp = setDateIdStore();
+
+		// Calculated Fields
+		outAppHealthRes.setMethodName(methodName);
+		outAppHealthRes.setDateTime(stamp.date);
+		outAppHealthRes.setUniqueid(stamp.uniqueId);
+		outAppHealthRes.setHost(stamp.hostName);
+		outAppHealthRes.setIpAddress(stamp.ipAddress);
+		outAppHealthRes.setBuildVersion(stamp.buildVersion);
+		outAppHealthRes.setProvince(stamp.province);
+	}
+
+	/**
+	 * Update outAppSummaryRes with date, unique id, host and IP address
+	 * 
+	 * @param outAppSummaryRes - OutAppSummaryRes representing aggregated
+	 *                         application metrics to update
+	 */
+	public void updateOutAppSummaryRes(OutAppSummaryRes outAppSummaryRes) {
+		DateIdStore stamp = setDateIdStore();
+
+		// Calculated Fields
+		outAppSummaryRes.setDateTime(stamp.date);
+		outAppSummaryRes.setUniqueid(stamp.uniqueId);
+		outAppSummaryRes.setHost(stamp.hostName);
+		outAppSummaryRes.setIpAddress(stamp.ipAddress);
+		outAppSummaryRes.setBuildVersion(stamp.buildVersion);
+		outAppSummaryRes.setProvince(stamp.province);
+	}
+
+	/**
+	 * Stamp a response with date set to the current time, uniqueId to a random
+	 * unique id, store to the current store number, and buildVersion and province
+	 * to the store's cached metadata. Each call returns its own stamp, so
+	 * collectors can build responses concurrently without sharing state
+	 * 
+	 * @return - a DateIdStore representing the calculated fields of one response
+	 */
+	private DateIdStore setDateIdStore() {
+		return new DateIdStore(dateFormat.format(LocalDateTime.now()), UUID.randomUUID().toString(),
+				smlProperties.getHostName(), smlProperties.getIpAddress(), storeMetadata.getBuildVersion(),
+				storeMetadata.getProvince());
 	}
 
 	/**
@@ -182,13 +299,81 @@ public class LogHelper {
 	 * @return - integer representing the count of the number of messages sent
 	 */
 	public int logOutResponse(String message) {
+		return logOutResponse(message, OutputRouter.DEFAULT, null);
+	}
+
+	/**
+	 * Given a message of eventType, log its contents into the output of its
+	 * partition to be picked up by a Splunk forwarder and increment counter if it
+	 * was not dropped
+	 * 
+	 * @param message     - String representing log message
+	 * @param eventType   - String representing the OutputRouter event type
+	 * @param projectName - String representing the project of the message, null if
+	 *                    it does not belong to one
+	 * @return - integer representing the count of the number of messages sent
+	 */
+	public int logOutResponse(String message, String eventType, String projectName) {
 		// logs message to file and increments outCounter
-		logger.info(message);
-		outCounter.incCounter();
+		if (write(message, eventType, projectName, 1))
+			outCounter.incCounter();
+
+		return outCounter.getInfo().getCounter();
+	}
+
+	/**
+	 * Log message wrapped in the envelope reqHelper(String) gives, without building
+	 * an OutDataRes or serializing it. The store fields of the envelope are
+	 * serialized once per change of the store metadata, and message is escaped
+	 * straight into the output line
+	 * 
+	 * @param message - CharSequence representing the message to send to Splunk
+	 * @return - integer representing the count of the number of messages sent
+	 */
+	public int logDataPassThrough(CharSequence message) {
+		String storeFields = getDataStoreFields();
+		StringBuilder out = new StringBuilder(DATA_ENVELOPE_BYTES + storeFields.length() + message.length());
+
+		out.append("{\"dateTime\":\"").append(dateFormat.format(LocalDateTime.now())).append("\",\"uniqueid\":\"")
+				.append(UUID.randomUUID()).append('"').append(storeFields).append(",\"message\":\"");
+		jsonEncoder.quoteAsString(message, out);
+		out.append("\"}");
+
+		if (write(out, OutputRouter.DATA, null, 1))
+			outCounter.incCounter();
 
 		return outCounter.getInfo().getCounter();
 	}
 
+	/**
+	 * @return - String representing the store, buildVersion and province fields of
+	 *         OutDataRes as JSON, each preceded by a comma and left out when empty
+	 */
+	private String getDataStoreFields() {
+		String[] values = { smlProperties.getHostName(), storeMetadata.getBuildVersion(),
+				storeMetadata.getProvince() };
+		String[] cached = dataStoreFields;
+
+		if (cached != null && Arrays.equals(Arrays.copyOf(cached, values.length), values))
+			return cached[values.length];
+
+		StringBuilder fields = new StringBuilder();
+		String[] names = { "store", "buildVersion", "province" };
+		for (int i = 0; i < names.length; i++) {
+			if (values[i] == null || values[i].isEmpty())
+				continue;
+
+			fields.append(",\"").append(names[i]).append("\":\"");
+			jsonEncoder.quoteAsString(values[i], fields);
+			fields.append('"');
+		}
+
+		String[] updated = Arrays.copyOf(values, values.length + 1);
+		updated[values.length] = fields.toString();
+		dataStoreFields = updated;
+		return updated[values.length];
+	}
+
 	/**
 	 * Given a message, log its contents into a file to be picked up by a Splunk
 	 * forwarder and increment counter if incCounter is true
@@ -198,15 +383,98 @@ public class LogHelper {
 	 * @return - integer representing the count of the number of messages sent
 	 */
 	public int logOutResponse(String message, boolean incCounter) {
-		// logs message to file and increments outCounter
-		logger.info(message);
+		return logOutResponse(message, incCounter, OutputRouter.DEFAULT);
+	}
 
-		if (incCounter)
+	/**
+	 * Given a message of eventType, log its contents into the output of its
+	 * partition to be picked up by a Splunk forwarder and increment counter if
+	 * incCounter is true and it was not dropped
+	 * 
+	 * @param message    - String representing log message
+	 * @param incCounter - set boolean to true to increment counter, false otherwise
+	 * @param eventType  - String representing the OutputRouter event type
+	 * @return - integer representing the count of the number of messages sent
+	 */
+	public int logOutResponse(String message, boolean incCounter, String eventType) {
+		// logs message to file and increments outCounter
+		if (write(message, eventType, null, 1) && incCounter)
 			outCounter.incCounter();
 
 		return outCounter.getInfo().getCounter();
 	}
 
+	/**
+	 * Given messages, log them as one write, one message per line, into the file
+	 * picked up by a Splunk forwarder and increment counter once per message
+	 * 
+	 * @param messages - List of String representing log messages
+	 * @return - integer representing the count of the number of messages sent
+	 */
+	public int logOutResponses(List<String> messages) {
+		return logOutResponses(messages, OutputRouter.DEFAULT, null);
+	}
+
+	/**
+	 * Given messages of eventType, log them as one write, one message per line,
+	 * into the output of their partition and increment counter once per message
+	 * unless they were dropped
+	 * 
+	 * @param messages    - List of String representing log messages
+	 * @param eventType   - String representing the OutputRouter event type
+	 * @param projectName - String representing the project of all the messages,
+	 *                    null if they do not belong to one
+	 * @return - integer representing the count of the number of messages sent
+	 */
+	public int logOutResponses(List<String> messages, String eventType, String projectName) {
+		// The metrics file layout is %m%n, so the messages are written as separate lines
+		if (write(String.join(System.lineSeparator(), messages), eventType, projectName, messages.size())) {
+			for (int i = 0; i < messages.size(); i++)
+				outCounter.incCounter();
+		}
+
+		return outCounter.getInfo().getCounter();
+	}
+
+	/**
+	 * Write message to the output, or append it to the spool while the output is
+	 * failing or slow
+	 * 
+	 * @return - true if message was written, queued or spooled, false if it was
+	 *         dropped
+	 */
+	private boolean write(CharSequence message, String eventType, String projectName, int events) {
+		if (outputSpool.isSpooling())
+			return outputSpool.append(eventType, projectName, message, events);
+
+		long start = System.nanoTime();
+		try {
+			boolean written = writeOutput(eventType, projectName, message, events);
+			outputSpool.recordWrite(System.nanoTime() - start);
+			return written;
+		} catch (RuntimeException e) {
+			if (!outputSpool.isEnabled())
+				throw e;
+
+			outputSpool.recordFailure(e);
+			return outputSpool.append(eventType, projectName, message, events);
+		}
+	}
+
+	/**
+	 * Write message straight to the metrics file, or queue it on its partition
+	 * when output partitions are enabled. Also replays spooled messages
+	 * 
+	 * @return - true if message was written or queued, false if it was dropped
+	 */
+	private boolean writeOutput(String eventType, String projectName, CharSequence message, int events) {
+		if (!outputRouter.isEnabled()) {
+			logger.info(message);
+			return true;
+		}
+		return outputRouter.write(eventType, projectName, message, events);
+	}
+
 	/**
 	 * Increment the inCounter and return its count
 	 * 
@@ -228,4 +496,26 @@ public class LogHelper {
 
 		return outCounter.getInfo().getCounter();
 	}
+
+	/**
+	 * Calculated fields shared by every response built by this helper
+	 */
+	private static final class DateIdStore {
+		private final String date;
+		private final String uniqueId;
+		private final String hostName;
+		private final String ipAddress;
+		private final String buildVersion;
+		private final String province;
+
+		private DateIdStore(String date, String uniqueId, String hostName, String ipAddress, String buildVersion,
+				String province) {
+			this.date = date;
+			this.uniqueId = uniqueId;
+			this.hostName = hostName;
+			this.ipAddress = ipAddress;
+			this.buildVersion = buildVersion;
+			this.province = province;
+		}
+	}
 }
@@ -0,0 +1,261 @@
+package com.loblaw.metrics.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.loblaw.metrics.config.TokenBucket;
+import com.loblaw.metrics.service.CounterInfoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partitions output events by event type and projectName when
+ * output.partitions.enabled is set. Each partition has its own bounded queue and
+ * writer thread, and writes through the partitioned-appender logger with the
+ * partition name in the ThreadContext, which log4j2 routes to a file per
+ * partition. A partition over its queue capacity or rate quota drops events
+ * rather than slowing the others, counting them on the dropped-counter.
+ * Messages a writer fails to write are appended to the OutputSpool.
+ */
+@Component
+@Slf4j
+public class OutputRouter {
+	public static final String DEFAULT = "metrics";
+	public static final String APP_METRICS = "appmetrics";
+	public static final String APP_SUMMARY = "appsummary";
+	public static final String APP_HEALTH = "apphealth";
+	public static final String DATA = "data";
+	public static final String DATABASE = "database";
+	public static final String LOGS = "logs";
+	public static final String CONTAINER = "container";
+
+	// ThreadContext key the log4j2 Routing appender selects the partition file by
+	public static final String PARTITION_KEY = "partition";
+	private static final String PARTITIONED_APPENDER_LOGGER = "partitioned-appender";
+	private static final String OTHER_PROJECTS = "other";
+	private static final long POLL_MS = 500;
+	private static final int MAX_DRAIN = 1000;
+	private static final long DROP_LOG_EVERY = 1000;
+
+	private static final Logger partitionedLogger = LogManager.getLogger(PARTITIONED_APPENDER_LOGGER);
+
+	@Autowired
+	@Qualifier("dropped-counter")
+	private CounterInfoService droppedCounter;
+
+	@Autowired
+	private OutputSpool outputSpool;
+
+	@Value("${output.partitions.enabled:false}")
+	private boolean enabled;
+
+	@Value("${output.partitions.by-type:true}")
+	private boolean byType;
+
+	@Value("${output.partitions.by-project:true}")
+	private boolean byProject;
+
+	@Value("${output.partitions.max-projects:16}")
+	private int maxProjects;
+
+	@Value("${output.partitions.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${output.partitions.rate-per-s:0}")
+	private double ratePerS;
+
+	private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+	private final Set<String> projects = ConcurrentHashMap.newKeySet();
+	private volatile boolean running = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Queue message on the partition of eventType and projectName
+	 *
+	 * @param eventType   - String representing the type of the events
+	 * @param projectName - String representing the project of the events, null if
+	 *                    they do not belong to one
+	 * @param message     - CharSequence of one or more events, one per line
+	 * @param events      - int representing the number of events in message
+	 * @return - true if message was queued, false if it was dropped
+	 */
+	public boolean write(String eventType, String projectName, CharSequence message, int events) {
+		Partition partition = getPartition(eventType, projectName);
+
+		if (partition.offer(message, events))
+			return true;
+
+		for (int i = 0; i < events; i++)
+			droppedCounter.incCounter();
+
+		long dropped = partition.dropped.addAndGet(events);
+		// Warn on the first drop and every DROP_LOG_EVERY drops after it
+		if (dropped == events || (dropped - events) / DROP_LOG_EVERY != dropped / DROP_LOG_EVERY)
+			log.warn("Output partition " + partition.name + " over quota, " + dropped + " events dropped (DRC: "
+					+ droppedCounter.getInfo().getCounter() + ")");
+		return false;
+	}
+
+	/**
+	 * Stop the writer threads once their queues are written
+	 */
+	@PreDestroy
+	public void close() {
+		running = false;
+
+		for (Partition partition : partitions.values()) {
+			try {
+				partition.writer.join(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				log.error("Output Router : Interrupted exception in close : {}", e.toString(), e);
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private String getPartitionName(String eventType, String projectName) {
+		String name = byType ? eventType : DEFAULT;
+
+		if (!byProject || projectName == null || projectName.isEmpty())
+			return name;
+
+		// Project names become file names
+		String project = projectName.replaceAll("[^A-Za-z0-9_.]", "_");
+		if (!projects.contains(project)) {
+			// Projects past maxProjects share one partition so file and thread counts stay bounded
+			if (projects.size() >= maxProjects)
+				project = OTHER_PROJECTS;
+			else
+				projects.add(project);
+		}
+
+		return name + "-" + project;
+	}
+
+	private Partition getPartition(String eventType, String projectName) {
+		String name = getPartitionName(eventType, projectName);
+		Partition partition = partitions.get(name);
+		if (partition != null)
+			return partition;
+
+		return partitions.computeIfAbsent(name, key -> new Partition(key, eventType, projectName));
+	}
+
+	private class Partition {
+		private final String name;
+		private final String eventType;
+		private final String projectName;
+		private final BlockingQueue<Output> queue;
+		private final TokenBucket bucket;
+		private final Thread writer;
+		private final AtomicLong dropped = new AtomicLong();
+
+		private Partition(String name, String eventType, String projectName) {
+			this.name = name;
+			this.eventType = eventType;
+			this.projectName = projectName;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.bucket = ratePerS > 0 ? new TokenBucket(ratePerS, ratePerS) : null;
+			this.writer = new Thread(this::write, "output-" + name);
+			this.writer.setDaemon(true);
+			this.writer.start();
+			log.info("Started output partition " + name);
+		}
+
+		private boolean offer(CharSequence message, int events) {
+			if (bucket != null && bucket.tryAcquire(System.nanoTime(), events) > 0)
+				return false;
+			return queue.offer(new Output(message, events));
+		}
+
+		/**
+		 * Write the queued messages, as many as are queued in one logger call
+		 */
+		private void write() {
+			ThreadContext.put(PARTITION_KEY, name);
+			List<Output> pending = new ArrayList<>();
+			StringBuilder messages = new StringBuilder();
+
+			while (running || !queue.isEmpty()) {
+				try {
+					Output first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+					if (first == null)
+						continue;
+
+					pending.add(first);
+					queue.drainTo(pending, MAX_DRAIN - 1);
+					for (Output output : pending) {
+						if (messages.length() > 0)
+							messages.append(System.lineSeparator());
+						messages.append(output.message);
+					}
+
+					long start = System.nanoTime();
+					partitionedLogger.info(messages.toString());
+					outputSpool.recordWrite(System.nanoTime() - start);
+				} catch (InterruptedException e) {
+					log.error("Output Router : Interrupted exception in write : {}", e.toString(), e);
+					Thread.currentThread().interrupt();
+					return;
+				} catch (RuntimeException e) {
+					log.error("Output Router : Runtime exception in write : {}", e.toString(), e);
+					spool(pending, e);
+				} finally {
+					pending.clear();
+					messages.setLength(0);
+				}
+			}
+		}
+
+		/**
+		 * Append the messages that could not be written to the spool, counting them
+		 * as dropped if it is disabled or full
+		 */
+		private void spool(List<Output> failed, RuntimeException e) {
+			outputSpool.recordFailure(e);
+
+			for (Output output : failed) {
+				if (outputSpool.append(eventType, projectName, output.message, output.events))
+					continue;
+
+				for (int i = 0; i < output.events; i++)
+					droppedCounter.incCounter();
+				dropped.addAndGet(output.events);
+			}
+		}
+	}
+
+	/**
+	 * A queued message and the number of events in it
+	 */
+	private static class Output {
+		private final CharSequence message;
+		private final int events;
+
+		private Output(CharSequence message, int events) {
+			this.message = message;
+			this.events = events;
+		}
+	}
+}
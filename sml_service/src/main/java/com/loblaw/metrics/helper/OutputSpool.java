@@ -0,0 +1,467 @@
+package com.loblaw.metrics.helper;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.loblaw.metrics.service.CounterInfoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-ahead spool in front of the metrics output. When a write to the output
+ * fails, or takes longer than output.spool.slow-write-ms, the spool takes over:
+ * every output event is appended to segment files under output.spool.dir and
+ * replayed into the output in the background once it accepts writes again, so
+ * callers never wait on a full or stalled metrics volume.
+ *
+ * Segments are append only and roll at segment-bytes. Each record is its length,
+ * the CRC32 of its payload and the payload: event type, projectName, the number
+ * of events and the message. Replay stops at the first record failing its CRC,
+ * the rest of a torn segment being unreadable. A replayed segment is deleted,
+ * so events are written at least once: a restart during replay writes the
+ * events of the segment in progress again. Appends over max-bytes are dropped
+ * and counted.
+ */
+@Component
+@Slf4j
+public class OutputSpool {
+	private static final String SEGMENT_PREFIX = "spool-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	// Length and CRC preceding each payload
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final long DROP_LOG_EVERY = 1000;
+
+	/**
+	 * The output spooled events are replayed into
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		/**
+		 * @return - true if the events were written, false if the output refused
+		 *         them for now
+		 * @throws RuntimeException - when the output failed
+		 */
+		boolean write(String eventType, String projectName, CharSequence message, int events);
+	}
+
+	@Autowired
+	@Qualifier("dropped-counter")
+	private CounterInfoService droppedCounter;
+
+	@Value("${output.spool.enabled:false}")
+	private boolean enabled;
+
+	@Value("${output.spool.dir:spool}")
+	private String dir;
+
+	@Value("${output.spool.segment-bytes:16777216}")
+	private long segmentBytes;
+
+	@Value("${output.spool.max-bytes:1073741824}")
+	private long maxBytes;
+
+	@Value("${output.spool.slow-write-ms:500}")
+	private long slowWriteMs;
+
+	@Value("${output.spool.fsync:false}")
+	private boolean fsync;
+
+	private Sink sink;
+
+	// Closed segments, oldest first, replayed in order
+	private final Deque<Path> segments = new ArrayDeque<>();
+	private FileChannel active;
+	private Path activePath;
+	private long activeBytes = 0;
+	private long totalBytes = 0;
+	private long nextSequence = 0;
+	private long dropped = 0;
+
+	// Position in the oldest segment replayed up to, only used by replay
+	private long replayPosition = 0;
+
+	private volatile boolean spooling = false;
+
+	/**
+	 * Pick up the segments left by the previous run so they are replayed first
+	 */
+	@PostConstruct
+	public synchronized void open() {
+		if (!enabled)
+			return;
+
+		Path spoolDir = Paths.get(dir);
+		try {
+			Files.createDirectories(spoolDir);
+
+			try (Stream<Path> files = Files.list(spoolDir)) {
+				files.filter(file -> getSequence(file) >= 0).sorted().forEach(segments::add);
+			}
+
+			for (Path segment : segments) {
+				totalBytes += Files.size(segment);
+				nextSequence = Math.max(nextSequence, getSequence(segment) + 1);
+			}
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in open : {}", e.toString(), e);
+		}
+
+		if (!segments.isEmpty()) {
+			spooling = true;
+			log.info("Replaying " + segments.size() + " spooled segments (" + totalBytes + " bytes) from " + dir);
+		}
+	}
+
+	/**
+	 * @param sink - Sink spooled events are replayed into
+	 */
+	public void setSink(Sink sink) {
+		this.sink = sink;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return - true if output events must be appended to the spool rather than
+	 *         written to the output
+	 */
+	public boolean isSpooling() {
+		return spooling;
+	}
+
+	/**
+	 * Start spooling if a write to the output took longer than slow-write-ms
+	 *
+	 * @param elapsedNs - long representing the nanoseconds the write took
+	 */
+	public void recordWrite(long elapsedNs) {
+		if (enabled && !spooling && elapsedNs > TimeUnit.MILLISECONDS.toNanos(slowWriteMs)) {
+			spooling = true;
+			log.warn("Output write took " + TimeUnit.NANOSECONDS.toMillis(elapsedNs) + " ms, spooling to " + dir);
+		}
+	}
+
+	/**
+	 * Start spooling after a write to the output failed
+	 *
+	 * @param e - RuntimeException the output failed with
+	 */
+	public void recordFailure(RuntimeException e) {
+		if (enabled && !spooling) {
+			spooling = true;
+			log.error("Output Spool : Output write failed, spooling to " + dir + " : {}", e.toString(), e);
+		}
+	}
+
+	/**
+	 * Append message to the spool, spooling being started by recordWrite or
+	 * recordFailure. A caller may have seen isSpooling before replay caught up
+	 * and ended spooling, so appending starts spooling again and the message is
+	 * still replayed
+	 *
+	 * @param eventType   - String representing the OutputRouter event type
+	 * @param projectName - String representing the project of message, null if it
+	 *                    does not belong to one
+	 * @param message     - CharSequence of one or more events, one per line
+	 * @param events      - int representing the number of events in message
+	 * @return - true if message was spooled, false if the spool is disabled, full
+	 *         or failed
+	 */
+	public synchronized boolean append(String eventType, String projectName, CharSequence message, int events) {
+		if (!enabled)
+			return false;
+
+		// Replay ends spooling under this lock, so a message appended after it did
+		// would otherwise stay in its segment until the next slow or failed write
+		spooling = true;
+
+		ByteBuffer record = encode(eventType, projectName, message, events);
+		if (totalBytes + record.remaining() > maxBytes) {
+			for (int i = 0; i < events; i++)
+				droppedCounter.incCounter();
+			dropped += events;
+			if (dropped == events || (dropped - events) / DROP_LOG_EVERY != dropped / DROP_LOG_EVERY)
+				log.error("Output spool is full at " + totalBytes + " bytes, " + dropped + " events dropped (DRC: "
+						+ droppedCounter.getInfo().getCounter() + ")");
+			return false;
+		}
+
+		try {
+			if (active != null && activeBytes >= segmentBytes)
+				roll();
+			if (active == null)
+				openActive();
+
+			int length = record.remaining();
+			while (record.hasRemaining())
+				active.write(record);
+			if (fsync)
+				active.force(false);
+
+			activeBytes += length;
+			totalBytes += length;
+			return true;
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in append : {}", e.toString(), e);
+			abandonActive();
+			return false;
+		}
+	}
+
+	/**
+	 * Replay the spooled events into the sink, oldest first, and stop spooling
+	 * once every event was replayed. Replay stops for this round when the sink
+	 * fails, refuses events or is still slow
+	 */
+	@Scheduled(initialDelayString = "${output.spool.replay-interval-ms:5000}",
+			fixedDelayString = "${output.spool.replay-interval-ms:5000}")
+	public void replay() {
+		if (!enabled || sink == null || !spooling)
+			return;
+
+		Path segment;
+		while ((segment = nextReplaySegment()) != null) {
+			if (!replaySegment(segment))
+				return;
+		}
+	}
+
+	/**
+	 * Close the segment being appended to, its events are replayed on the next run
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		if (active == null)
+			return;
+
+		try {
+			active.force(false);
+			active.close();
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in close : {}", e.toString(), e);
+		}
+		active = null;
+	}
+
+	/**
+	 * @return - Path of the oldest segment, rolling the active one when it is the
+	 *         only one left, or null once everything was replayed, which ends
+	 *         spooling
+	 */
+	private synchronized Path nextReplaySegment() {
+		try {
+			if (segments.isEmpty() && active != null)
+				roll();
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in nextReplaySegment : {}", e.toString(), e);
+			return null;
+		}
+
+		if (!segments.isEmpty())
+			return segments.peekFirst();
+
+		spooling = false;
+		log.info("Replayed every spooled event, writing to the output again");
+		return null;
+	}
+
+	/**
+	 * Replay segment from the position reached and delete it once it is replayed
+	 *
+	 * @return - true if the whole segment was replayed
+	 */
+	private boolean replaySegment(Path segment) {
+		long position = replayPosition;
+
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			long size = channel.size();
+			channel.position(position);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+			byte[] payload;
+			while ((payload = readRecord(in, segment, position, size)) != null) {
+				long start = System.nanoTime();
+				if (!replayRecord(payload))
+					return false;
+
+				position += RECORD_HEADER_BYTES + payload.length;
+				replayPosition = position;
+
+				if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(slowWriteMs))
+					return false;
+			}
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in replaySegment : {}", e.toString(), e);
+			return false;
+		} catch (RuntimeException e) {
+			log.error("Output Spool : Runtime exception in replaySegment : {}", e.toString(), e);
+			return false;
+		}
+
+		delete(segment);
+		return true;
+	}
+
+	/**
+	 * @return - the payload of the record at position, or null at the end of the
+	 *         segment or at a torn or corrupt record
+	 */
+	private byte[] readRecord(DataInputStream in, Path segment, long position, long size) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			// End of the segment, or a header torn by a failed append
+			return null;
+		}
+
+		try {
+			long crc = in.readInt() & 0xffffffffL;
+			// A length running past the end of the segment can only be corrupt
+			if (length < 0 || length > size - position - RECORD_HEADER_BYTES) {
+				log.error("Output spool record of " + length + " bytes at " + position + " of " + segment
+						+ " is corrupt, skipping the rest of the segment");
+				return null;
+			}
+
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+
+			CRC32 check = new CRC32();
+			check.update(payload);
+			if (check.getValue() == crc)
+				return payload;
+
+			log.error("Output spool record at " + position + " of " + segment
+					+ " fails its CRC, skipping the rest of the segment");
+		} catch (EOFException e) {
+			log.error("Output spool record at " + position + " of " + segment + " is truncated, skipping it");
+		}
+		return null;
+	}
+
+	private boolean replayRecord(byte[] payload) {
+		ByteBuffer in = ByteBuffer.wrap(payload);
+		String eventType = readString(in, in.getShort());
+		String projectName = readString(in, in.getShort());
+		int events = in.getInt();
+		String message = readString(in, in.remaining());
+
+		return sink.write(eventType, projectName.isEmpty() ? null : projectName, message, events);
+	}
+
+	private String readString(ByteBuffer in, int length) {
+		String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	private synchronized void delete(Path segment) {
+		try {
+			totalBytes -= Files.size(segment);
+			Files.delete(segment);
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in delete : {}", e.toString(), e);
+		}
+		segments.remove(segment);
+		replayPosition = 0;
+	}
+
+	/**
+	 * Close the active segment so it can be replayed, the next append starts a
+	 * new one
+	 */
+	private void roll() throws IOException {
+		FileChannel closing = active;
+		active = null;
+		segments.add(activePath);
+
+		closing.force(false);
+		closing.close();
+	}
+
+	/**
+	 * End the active segment after a failed append, a partly written record being
+	 * the last one replay reads from it
+	 */
+	private void abandonActive() {
+		if (active == null)
+			return;
+
+		try {
+			roll();
+		} catch (IOException e) {
+			log.error("Output Spool : IO exception in abandonActive : {}", e.toString(), e);
+			active = null;
+		}
+	}
+
+	private void openActive() throws IOException {
+		activePath = Paths.get(dir, String.format("%s%019d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+		active = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		activeBytes = 0;
+	}
+
+	private ByteBuffer encode(String eventType, String projectName, CharSequence message, int events) {
+		byte[] type = eventType.getBytes(StandardCharsets.UTF_8);
+		byte[] project = (projectName != null ? projectName : "").getBytes(StandardCharsets.UTF_8);
+		byte[] body = message.toString().getBytes(StandardCharsets.UTF_8);
+
+		// Payload of the type length and type, project length and project, event count
+		// and body. Lengths are shorts and the event count an int
+		int length = 2 + type.length + 2 + project.length + 4 + body.length;
+		ByteBuffer payload = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+		payload.putInt(length).putInt(0);
+		payload.putShort((short) type.length).put(type);
+		payload.putShort((short) project.length).put(project);
+		payload.putInt(events).put(body);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload.array(), RECORD_HEADER_BYTES, length);
+		payload.putInt(4, (int) crc.getValue());
+
+		payload.flip();
+		return payload;
+	}
+
+	/**
+	 * @return - long representing the sequence of segment, -1 if it is not one
+	 */
+	private long getSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+			return -1;
+
+		try {
+			return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
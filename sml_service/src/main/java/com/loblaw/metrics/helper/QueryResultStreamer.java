@@ -0,0 +1,153 @@
+package com.loblaw.metrics.helper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes the rows of a result set as they are read into JSON arrays of at most
+ * batchRows rows, handing each array to batchSink as soon as it is full. Only
+ * the current batch is held in memory.
+ *
+ * In columnar mode each row is written as an array of its values in column
+ * order, the column names being given once by getColumnNames.
+ *
+ * A streamer holds the state of a single query and must not be shared.
+ */
+public class QueryResultStreamer implements RowCallbackHandler {
+	private final ObjectMapper objectMapper;
+	private final int batchRows;
+	private final BiConsumer<List<String>, String> batchSink;
+	private final boolean columnar;
+
+	private String[] columnNames;
+	private StringWriter writer;
+	private JsonGenerator generator;
+	private int rowsInBatch = 0;
+	private long totalRows = 0;
+	private int batches = 0;
+
+	public QueryResultStreamer(ObjectMapper objectMapper, int batchRows, Consumer<String> batchSink) {
+		this(objectMapper, batchRows, (columns, batch) -> batchSink.accept(batch), false);
+	}
+
+	/**
+	 * @param objectMapper - ObjectMapper writing the row values
+	 * @param batchRows    - int representing the maximum rows of a batch
+	 * @param batchSink    - BiConsumer given the column names and each batch
+	 * @param columnar     - true to write rows as arrays, false as objects
+	 */
+	public QueryResultStreamer(ObjectMapper objectMapper, int batchRows,
+			BiConsumer<List<String>, String> batchSink, boolean columnar) {
+		this.objectMapper = objectMapper;
+		this.batchRows = batchRows;
+		this.batchSink = batchSink;
+		this.columnar = columnar;
+	}
+
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		if (columnNames == null)
+			columnNames = getColumnNames(rs.getMetaData());
+
+		try {
+			if (generator == null)
+				startBatch();
+
+			if (columnar)
+				generator.writeStartArray();
+			else
+				generator.writeStartObject();
+
+			for (int i = 0; i < columnNames.length; i++) {
+				if (!columnar)
+					generator.writeFieldName(columnNames[i]);
+				generator.writeObject(JdbcUtils.getResultSetValue(rs, i + 1));
+			}
+
+			if (columnar)
+				generator.writeEndArray();
+			else
+				generator.writeEndObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		rowsInBatch++;
+		totalRows++;
+		if (rowsInBatch >= batchRows)
+			emitBatch();
+	}
+
+	/**
+	 * Hand the last partial batch to batchSink. An empty array is emitted when the
+	 * query returned no rows, so every successful query is reported
+	 */
+	public void finish() {
+		if (generator != null || batches == 0)
+			emitBatch();
+	}
+
+	/**
+	 * @return - List of the column names of the result set, empty until a row has
+	 *         been read
+	 */
+	public List<String> getColumnNames() {
+		return columnNames != null ? Arrays.asList(columnNames) : Collections.emptyList();
+	}
+
+	/**
+	 * @return - long representing the number of rows written
+	 */
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	private void startBatch() throws IOException {
+		writer = new StringWriter();
+		generator = objectMapper.getFactory().createGenerator(writer);
+		generator.writeStartArray();
+		rowsInBatch = 0;
+	}
+
+	private void emitBatch() {
+		try {
+			if (generator == null)
+				startBatch();
+
+			generator.writeEndArray();
+			generator.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		String batch = writer.toString();
+		generator = null;
+		writer = null;
+		batches++;
+		batchSink.accept(getColumnNames(), batch);
+	}
+
+	private String[] getColumnNames(ResultSetMetaData metaData) throws SQLException {
+		String[] names = new String[metaData.getColumnCount()];
+
+		for (int i = 0; i < names.length; i++) {
+			names[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+		}
+		return names;
+	}
+}
@@ -0,0 +1,136 @@
+package com.loblaw.metrics.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.loblaw.metrics.service.CounterInfoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Access logging of the controller endpoints. Each endpoint logs at a verbosity
+ * of OFF, SUMMARY (one line per request) or DETAIL (the request itself and its
+ * details too), and only one request in sample-every is logged. Whether a
+ * request is logged is decided once, by incoming, and passed to finished and
+ * detail so every line of a sampled request is logged. Messages are
+ * parameterized, so counters are read and requests formatted only for the
+ * requests actually logged.
+ *
+ * Settings are read from application.request-log.endpoints.{endpoint}, the
+ * endpoint being its URL without the leading slash and with / replaced by -
+ * (appmetrics-bulk), falling back to application.request-log.
+ */
+@Component
+@Slf4j
+public class RequestLogger {
+	private static final String ENDPOINT_PREFIX = "application.request-log.endpoints.";
+
+	public enum Verbosity {
+		OFF, SUMMARY, DETAIL
+	}
+
+	@Autowired
+	private Environment env;
+
+	@Value("${application.request-log.verbosity:SUMMARY}")
+	private String defaultVerbosity;
+
+	@Value("${application.request-log.sample-every:1}")
+	private int defaultSampleEvery;
+
+	private final Map<String, EndpointLog> endpointLogs = new ConcurrentHashMap<>();
+
+	/**
+	 * Log an incoming request to url
+	 *
+	 * @param url       - String representing the URL of the endpoint
+	 * @param inCounter - CounterInfoService of requests received, read only if the
+	 *                  request is logged
+	 * @return - true if the request is logged, to pass to finished and detail
+	 */
+	public boolean incoming(String url, CounterInfoService inCounter) {
+		return incoming(url, inCounter, null);
+	}
+
+	/**
+	 * Log an incoming request to url, with request when the verbosity is DETAIL
+	 *
+	 * @param url       - String representing the URL of the endpoint
+	 * @param inCounter - CounterInfoService of requests received, read only if the
+	 *                  request is logged
+	 * @param request   - Object representing the request, formatted only if logged
+	 * @return - true if the request is logged, to pass to finished and detail
+	 */
+	public boolean incoming(String url, CounterInfoService inCounter, Object request) {
+		EndpointLog endpointLog = getEndpointLog(url);
+		if (endpointLog.verbosity == Verbosity.OFF || !log.isInfoEnabled() || !endpointLog.sample())
+			return false;
+
+		if (request != null && endpointLog.verbosity == Verbosity.DETAIL)
+			log.info("Incoming {} request: {} (IC: {})", url, request, inCounter.getInfo().getCounter());
+		else
+			log.info("Incoming {} request (IC: {})", url, inCounter.getInfo().getCounter());
+		return true;
+	}
+
+	/**
+	 * Log a request to url finished if its incoming request was logged
+	 *
+	 * @param url      - String representing the URL of the endpoint
+	 * @param logged   - boolean returned by incoming for the request
+	 * @param outCount - int representing the count of messages sent
+	 */
+	public void finished(String url, boolean logged, int outCount) {
+		if (logged)
+			log.info("Finished {} request (OC: {})", url, outCount);
+	}
+
+	/**
+	 * Log details of a request to url when the verbosity is DETAIL and its
+	 * incoming request was logged
+	 *
+	 * @param url    - String representing the URL of the endpoint
+	 * @param logged - boolean returned by incoming for the request
+	 * @param format - String representing a message with {} for each argument
+	 * @param args   - Objects formatted into the message only if it is logged
+	 */
+	public void detail(String url, boolean logged, String format, Object... args) {
+		if (logged && getEndpointLog(url).verbosity == Verbosity.DETAIL)
+			log.info(format, args);
+	}
+
+	private EndpointLog getEndpointLog(String url) {
+		EndpointLog endpointLog = endpointLogs.get(url);
+		if (endpointLog != null)
+			return endpointLog;
+
+		return endpointLogs.computeIfAbsent(url, key -> {
+			String prefix = ENDPOINT_PREFIX + key.substring(key.startsWith("/") ? 1 : 0).replace('/', '-');
+			String verbosity = env.getProperty(prefix + ".verbosity", defaultVerbosity);
+			Integer sampleEvery = env.getProperty(prefix + ".sample-every", Integer.class, defaultSampleEvery);
+
+			return new EndpointLog(Verbosity.valueOf(verbosity.trim().toUpperCase()), sampleEvery);
+		});
+	}
+
+	private static class EndpointLog {
+		private final Verbosity verbosity;
+		private final int sampleEvery;
+		private final AtomicLong seen = new AtomicLong();
+
+		private EndpointLog(Verbosity verbosity, int sampleEvery) {
+			this.verbosity = verbosity;
+			this.sampleEvery = sampleEvery;
+		}
+
+		private boolean sample() {
+			return sampleEvery <= 1 || seen.getAndIncrement() % sampleEvery == 0;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.loblaw.metrics.helper;
+
+import java.sql.PreparedStatement;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.loblaw.metrics.model.StoreMetadata;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Looks up the store build version and province with the db.store-build-version
+ * and db.store-province queries once at startup and again every
+ * db.store-metadata.refresh-ms, so events are enriched without a database call
+ * each
+ */
+@Component
+@Slf4j
+public class StoreMetadataHelper {
+	private static final String BUILD_VERSION_LOCATION = "db.store-build-version";
+	private static final String PROVINCE_LOCATION = "db.store-province";
+	private static final String QUERY_SEARCH = ".search";
+	private static final String QUERY_KEY = ".key";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private Environment env;
+
+	@Autowired
+	private StoreMetadata storeMetadata;
+
+	@Value("${db.store-metadata.timeout-s:30}")
+	private int timeoutS;
+
+	/**
+	 * Refresh the store metadata, keeping the previous value of a lookup that
+	 * fails or returns nothing
+	 */
+	@Scheduled(initialDelayString = "${db.store-metadata.initial-delay-ms:0}",
+			fixedDelayString = "${db.store-metadata.refresh-ms:3600000}")
+	public void refreshStoreMetadata() {
+		String buildVersion = lookup(BUILD_VERSION_LOCATION);
+		if (buildVersion != null)
+			storeMetadata.setBuildVersion(buildVersion);
+
+		String province = lookup(PROVINCE_LOCATION);
+		if (province != null)
+			storeMetadata.setProvince(province);
+
+		log.info(String.format("Store metadata refreshed, build version: %s, province: %s",
+				storeMetadata.getBuildVersion(), storeMetadata.getProvince()));
+	}
+
+	/**
+	 * Run the lookup query at location and read its key column from the first row
+	 * 
+	 * @param location - String representing application property location of the
+	 *                 lookup query
+	 * @return - String representing the value looked up, or null if the lookup is
+	 *         not configured, failed or returned no rows
+	 */
+	private String lookup(String location) {
+		String query = env.getProperty(location + QUERY_SEARCH);
+		String key = env.getProperty(location + QUERY_KEY);
+
+		if (query == null || key == null)
+			return null;
+
+		try {
+			String value = jdbcTemplate.query(con -> {
+				PreparedStatement ps = con.prepareStatement(query);
+				ps.setMaxRows(1);
+				ps.setQueryTimeout(timeoutS);
+				return ps;
+			}, rs -> rs.next() ? rs.getString(key) : null);
+
+			return value != null ? value.trim() : null;
+		} catch (Exception e) {
+			log.error("Store Metadata Helper : Unexpected exception in lookup of " + location + " : {}",
+					e.toString(), e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.loblaw.metrics.helper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loblaw.metrics.model.Watermark;
+import com.loblaw.metrics.shared.util.FileUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the watermarks of incremental database queries, saved to
+ * db.watermark-file as one "key TAB json" line per query so runs resume where
+ * the last one stopped after a restart
+ */
+@Component
+@Slf4j
+public class WatermarkHelper {
+	private static final String SEPARATOR = "\t";
+
+	@Autowired
+	private FileUtil fileUtil;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${db.watermark-file:c:/temp/db_watermarks.txt}")
+	private String watermarkFile;
+
+	private Map<String, Watermark> watermarks;
+
+	/**
+	 * @param key - String representing the key of the incremental query
+	 * @return - a copy of the Watermark stored under key, or null if none is
+	 *         stored
+	 */
+	public synchronized Watermark getWatermark(String key) {
+		Watermark watermark = getWatermarks().get(key);
+		return watermark != null ? copy(watermark) : null;
+	}
+
+	/**
+	 * Store watermark under key and save every watermark to the watermark file,
+	 * replacing it whole so a failed save leaves the last watermarks saved
+	 * 
+	 * @param key       - String representing the key of the incremental query
+	 * @param watermark - Watermark reached by the query
+	 */
+	public synchronized void setWatermark(String key, Watermark watermark) {
+		getWatermarks().put(key, copy(watermark));
+
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, Watermark> entry : watermarks.entrySet()) {
+			try {
+				lines.add(entry.getKey() + SEPARATOR + objectMapper.writeValueAsString(entry.getValue()));
+			} catch (IOException e) {
+				log.error("Watermark Helper : Json exception in setWatermark : {}", e.toString(), e);
+			}
+		}
+
+		log.debug(String.format("Saving to %s the watermark of %s: %s", watermarkFile, key, watermark.getValue()));
+		if (fileUtil.replaceFile(watermarkFile, lines) < 0)
+			log.error("Error writing watermarks to file");
+	}
+
+	/**
+	 * Load the watermarks saved in the watermark file on first use
+	 * 
+	 * @return - Map of the watermarks keyed by incremental query
+	 */
+	private Map<String, Watermark> getWatermarks() {
+		if (watermarks != null)
+			return watermarks;
+
+		watermarks = new TreeMap<>();
+		if (!Files.exists(Paths.get(watermarkFile))) {
+			log.info(watermarkFile + " does not exist, incremental queries start from their start watermark");
+			return watermarks;
+		}
+
+		List<String> lines = new ArrayList<>();
+		fileUtil.readFile(watermarkFile, lines);
+
+		for (String line : lines) {
+			int separator = line.indexOf(SEPARATOR);
+			if (separator <= 0)
+				continue;
+
+			try {
+				watermarks.put(line.substring(0, separator),
+						objectMapper.readValue(line.substring(separator + 1), Watermark.class));
+			} catch (IOException e) {
+				log.error("Watermark Helper : Json exception in getWatermarks : {}", e.toString(), e);
+			}
+		}
+
+		return watermarks;
+	}
+
+	private Watermark copy(Watermark watermark) {
+		Watermark copy = new Watermark(watermark.getValue());
+		copy.setTotalRows(watermark.getTotalRows());
+		copy.getTotals().putAll(watermark.getTotals());
+		return copy;
+	}
+}
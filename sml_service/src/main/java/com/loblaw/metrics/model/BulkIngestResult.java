@@ -0,0 +1,32 @@
+package com.loblaw.metrics.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome of a bulk request of application metrics
+ */
+@Data
+public class BulkIngestResult {
+	// Records read from the request
+	private int received;
+
+	// Records sent to Splunk
+	private int accepted;
+
+	// Records added to the summaries of application.aggregation rather than sent
+	private int aggregated;
+
+	// Valid records dropped as already sent within application.dedup.window-ms
+	private int duplicates;
+
+	// Records rejected, each listed in errors up to application.bulk.max-errors
+	private int rejected;
+
+	private List<RecordError> errors = new ArrayList<>();
+
+	// True if the request was not read to its end
+	private boolean truncated;
+}
@@ -0,0 +1,40 @@
+package com.loblaw.metrics.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Results of an ad hoc database query kept to serve identical queries without
+ * running them again
+ */
+@Data
+@AllArgsConstructor
+public class CachedQueryResult {
+	public static final String HIT = "HIT";
+	public static final String MISS = "MISS";
+	public static final String COALESCED = "COALESCED";
+
+	// Rows of the query as JSON strings, shared between callers and not modifiable
+	private List<String> results;
+
+	// Time the query finished in milliseconds
+	private long createdAt;
+
+	// HIT when served from the cache, COALESCED when shared with a concurrent
+	// identical request, MISS when the query was executed for this request
+	private String cacheStatus;
+
+	public long getAgeMs() {
+		return System.currentTimeMillis() - createdAt;
+	}
+
+	/**
+	 * @param cacheStatus - String representing how the results were served
+	 * @return - a copy of these results served with cacheStatus
+	 */
+	public CachedQueryResult withCacheStatus(String cacheStatus) {
+		return new CachedQueryResult(results, createdAt, cacheStatus);
+	}
+}
@@ -0,0 +1,25 @@
+package com.loblaw.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Result of one application health probe round, kept to serve REST calls
+ * without probing again
+ */
+@Data
+@AllArgsConstructor
+public class HealthSnapshot {
+	// JSON sent to Splunk for this round
+	private String json;
+
+	// Quoted entity tag derived from the application and service statuses
+	private String etag;
+
+	// Time the probe round finished in milliseconds
+	private long createdAt;
+
+	public long getAgeMs() {
+		return System.currentTimeMillis() - createdAt;
+	}
+}
@@ -0,0 +1,35 @@
+package com.loblaw.metrics.model;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Settings of a scheduled query reading only the rows beyond its watermark, in
+ * pages ordered by a monotonic column
+ */
+@Data
+@NoArgsConstructor
+public class IncrementalQuery {
+	// Key the watermark is stored under
+	private String key;
+
+	// Monotonic column the watermark is read from
+	private String column;
+
+	// True if column is numeric, false if it is a timestamp
+	private boolean numeric;
+
+	// Rows read per page
+	private int pageSize;
+
+	// Pages read per run, remaining rows are read on the next run
+	private int maxPages;
+
+	// Numeric columns summed into the aggregates
+	private List<String> sumColumns;
+
+	// Watermark used before any row has been read, null for the last run or 0
+	private String start;
+}
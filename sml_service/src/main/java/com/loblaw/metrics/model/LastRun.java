@@ -1,14 +1,12 @@
 package com.loblaw.metrics.model;
 
 import org.springframework.stereotype.Component;
-import org.springframework.web.context.annotation.ApplicationScope;
 
 import lombok.Data;
 
-@Component 
-@ApplicationScope
+@Component
 @Data
 public class LastRun {
-	private String lastDbDateTime;
-	private String lastLogDateTime;
+	private volatile String lastDbDateTime;
+	private volatile String lastLogDateTime;
 }
\ No newline at end of file
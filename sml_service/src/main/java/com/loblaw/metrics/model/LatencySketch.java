@@ -0,0 +1,96 @@
+package com.loblaw.metrics.model;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Mergeable latency sketch counting values in logarithmic buckets, so any
+ * quantile is estimated within relativeAccuracy of the true value whatever the
+ * number of values. Bucket i holds values in (gamma^(i-1), gamma^i] with gamma
+ * = (1 + relativeAccuracy) / (1 - relativeAccuracy); values <= 0 are counted
+ * apart. Sketches with the same relativeAccuracy merge by adding bucket counts.
+ *
+ * Not thread safe.
+ */
+public class LatencySketch {
+	private final double gamma;
+	private final double logGamma;
+	private final SortedMap<Integer, Long> buckets = new TreeMap<>();
+
+	private long zeroCount = 0;
+	private long count = 0;
+
+	/**
+	 * @param relativeAccuracy - double representing the relative error of
+	 *                         quantiles, between 0 and 1
+	 */
+	public LatencySketch(double relativeAccuracy) {
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+	}
+
+	public void add(double value) {
+		if (value <= 0)
+			zeroCount++;
+		else
+			buckets.merge((int) Math.ceil(Math.log(value) / logGamma), 1L, Long::sum);
+		count++;
+	}
+
+	/**
+	 * Add the counts of other, which must have the same relative accuracy
+	 *
+	 * @param other - LatencySketch to merge into this one
+	 */
+	public void merge(LatencySketch other) {
+		if (Double.compare(gamma, other.gamma) != 0)
+			throw new IllegalArgumentException("Sketches of different accuracy cannot be merged");
+
+		for (Map.Entry<Integer, Long> bucket : other.buckets.entrySet())
+			buckets.merge(bucket.getKey(), bucket.getValue(), Long::sum);
+		zeroCount += other.zeroCount;
+		count += other.count;
+	}
+
+	/**
+	 * @param quantile - double representing the quantile, between 0 and 1
+	 * @return - Double representing the estimated value at quantile, null if the
+	 *         sketch is empty
+	 */
+	public Double getQuantile(double quantile) {
+		if (count == 0)
+			return null;
+
+		long rank = (long) Math.ceil(quantile * count);
+		long seen = zeroCount;
+		if (rank <= seen)
+			return 0d;
+
+		for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+			seen += bucket.getValue();
+			if (seen >= rank)
+				return 2 * Math.pow(gamma, bucket.getKey()) / (gamma + 1);
+		}
+		return 2 * Math.pow(gamma, buckets.lastKey()) / (gamma + 1);
+	}
+
+	public double getGamma() {
+		return gamma;
+	}
+
+	public long getZeroCount() {
+		return zeroCount;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return - SortedMap of bucket index to count, not to be modified
+	 */
+	public SortedMap<Integer, Long> getBuckets() {
+		return buckets;
+	}
+}
@@ -0,0 +1,36 @@
+package com.loblaw.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Execution settings applied to the statement of a single database query
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuerySettings {
+	// Maximum rows read, 0 for no limit
+	private int maxRows;
+
+	// Rows fetched per round trip, 0 for the driver default
+	private int fetchSize;
+
+	// Statement timeout in seconds, 0 for no timeout
+	private int timeoutS;
+
+	// Isolation clause appended as "with <isolation>" (ur, cs, rs or rr), null to
+	// leave the query as is
+	private String isolation;
+
+	// Send rows in batches as they are read rather than all at once
+	private boolean streaming;
+
+	// Name of the datasource the query runs against, null for the default
+	private String datasource;
+
+	// Emit the column names once and each row as an array of values rather than
+	// each row as an object
+	private boolean columnar;
+}
@@ -0,0 +1,18 @@
+package com.loblaw.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reason a record of a bulk request was rejected
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordError {
+	// Position of the record in the request, starting from 0
+	private int index;
+
+	private String message;
+}
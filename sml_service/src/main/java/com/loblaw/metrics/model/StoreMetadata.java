@@ -0,0 +1,16 @@
+package com.loblaw.metrics.model;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Store details looked up from the database in the background and stamped onto
+ * every outgoing event
+ */
+@Component
+@Data
+public class StoreMetadata {
+	private volatile String buildVersion;
+	private volatile String province;
+}
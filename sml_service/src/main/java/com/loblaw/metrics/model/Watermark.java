@@ -0,0 +1,30 @@
+package com.loblaw.metrics.model;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High-water mark of an incremental database query with the aggregates of every
+ * row read up to it
+ */
+@Data
+@NoArgsConstructor
+public class Watermark {
+	// Last value read of the watermark column, a timestamp in the db date time
+	// format or a number
+	private String value;
+
+	// Rows read since the watermark was first set
+	private long totalRows;
+
+	// Sum of each summed column of the rows read since the watermark was first set
+	private Map<String, BigDecimal> totals = new LinkedHashMap<>();
+
+	public Watermark(String value) {
+		this.value = value;
+	}
+}
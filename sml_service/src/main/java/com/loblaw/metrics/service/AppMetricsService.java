@@ -0,0 +1,13 @@
+package com.loblaw.metrics.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+
+import com.loblaw.metrics.model.BulkIngestResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface AppMetricsService {
+	Mono<BulkIngestResult> ingest(Flux<DataBuffer> body, MediaType contentType);
+}
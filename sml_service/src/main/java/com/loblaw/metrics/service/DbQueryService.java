@@ -2,9 +2,13 @@ package com.loblaw.metrics.service;
 
 import java.util.List;
 
+import com.loblaw.metrics.model.CachedQueryResult;
+
 public interface DbQueryService {
 	List<String> getDatabaseDetails(String query, boolean sendToSplunk);
 
+	CachedQueryResult getCachedDatabaseDetails(String query, Long ttlS);
+
 	void shortTermScheduledDatabase();
 
 	void longTermScheduledDatabase();
@@ -1,8 +1,17 @@
 package com.loblaw.metrics.service;
 
+import java.util.List;
+
+import com.loblaw.metrics.model.HealthSnapshot;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
+
 public interface HealthMetricService {
 	String sendApplicationHealth();
 
+	HealthSnapshot getApplicationHealthSnapshot();
+
+	int recordHeartbeats(List<HealthHeartbeat> heartbeats);
+
 	void scheduledSendApplicationHealth();
 
 }
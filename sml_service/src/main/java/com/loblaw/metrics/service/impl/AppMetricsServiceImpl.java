@@ -0,0 +1,293 @@
+package com.loblaw.metrics.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loblaw.metrics.helper.AppMetricAggregator;
+import com.loblaw.metrics.helper.EventDeduplicator;
+import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
+import com.loblaw.metrics.model.BulkIngestResult;
+import com.loblaw.metrics.model.RecordError;
+import com.loblaw.metrics.service.AppMetricsService;
+import com.loblaw.metrics.shared.SmlSharedConstants;
+import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.util.StringUtil;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+@Service
+@Slf4j
+public class AppMetricsServiceImpl implements AppMetricsService {
+	private static final ResolvableType JSON_NODE_TYPE = ResolvableType.forClass(JsonNode.class);
+	private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+	private static final MediaType SMILE = MediaType.parseMediaType(SmlSharedConstants.APPLICATION_SMILE_VALUE);
+
+	// Smile records are decoded into trees then mapped with objectMapper as JSON
+	// records are, the tree model being independent of the encoding
+	@Autowired
+	private Jackson2SmileDecoder smileDecoder;
+
+	@Autowired
+	private LogHelper logHelper;
+
+	@Autowired
+	private StringUtil stringUtil;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private EventDeduplicator eventDeduplicator;
+
+	@Autowired
+	private AppMetricAggregator appMetricAggregator;
+
+	@Autowired
+	@Qualifier("output-scheduler")
+	private Scheduler outputScheduler;
+
+	@Value("${application.bulk.batch-size:500}")
+	private int batchSize;
+
+	@Value("${application.bulk.max-records:100000}")
+	private int maxRecords;
+
+	@Value("${application.bulk.max-errors:100}")
+	private int maxErrors;
+
+	/**
+	 * Read application metrics from body one record at a time as it arrives,
+	 * validate each and send them to Splunk in batches of
+	 * application.bulk.batch-size. Batches are mapped to OutAppReq and written one
+	 * at a time on the output scheduler, off the event loop, and more of body is
+	 * only requested once a batch is written. Rejected records are reported by
+	 * position and do not stop the records after them
+	 * 
+	 * @param body        - Flux of DataBuffer holding a JSON or Smile array of
+	 *                    AppReq, or one JSON AppReq per line
+	 * @param contentType - MediaType of body, NDJSON for one record per line,
+	 *                    Smile for a Smile array and otherwise a JSON array
+	 * @return - a Mono of BulkIngestResult representing the records accepted and
+	 *         rejected
+	 */
+	@Override
+	public Mono<BulkIngestResult> ingest(Flux<DataBuffer> body, MediaType contentType) {
+		BulkIngestResult result = new BulkIngestResult();
+		Flux<ParsedRecord> records;
+
+		if (contentType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType))
+			records = readLines(body);
+		else if (contentType != null && SMILE.isCompatibleWith(contentType))
+			records = readArray(smileDecoder, body);
+		else
+			records = readArray(new Jackson2JsonDecoder(objectMapper), body);
+
+		// Gzip decoding failures keep their status, any other failure to read the body
+		// ends the request at the record reached
+		return records.onErrorResume(e -> !(e instanceof ResponseStatusException), e -> {
+			log.error("App Metrics Service : Decoding exception in ingest : {}", e.toString(), e);
+			result.setTruncated(true);
+			addError(result, result.getReceived(), "Unreadable request body: " + e.getMessage());
+			return Flux.empty();
+		}).takeWhile(record -> checkCapacity(result)).<OutRecord>handle((record, sink) -> {
+			OutRecord outRecord = ingestRecord(record, result);
+			if (outRecord != null)
+				sink.next(outRecord);
+		}).buffer(batchSize)
+				.concatMap(batch -> Mono.fromRunnable(() -> flush(batch, result)).subscribeOn(outputScheduler))
+				.then(Mono.fromCallable(() -> {
+					log.info("Bulk request received {} records, accepted {}, aggregated {}, duplicates {}, rejected {}",
+							result.getReceived(), result.getAccepted(), result.getAggregated(),
+							result.getDuplicates(), result.getRejected());
+					return result;
+				}));
+	}
+
+	/**
+	 * Read records from an array, or from objects following each other
+	 */
+	private Flux<ParsedRecord> readArray(AbstractJackson2Decoder decoder, Flux<DataBuffer> body) {
+		return decoder.decode(body, JSON_NODE_TYPE, null, null)
+				.map(record -> new ParsedRecord((JsonNode) record, null));
+	}
+
+	/**
+	 * Read one record per line, so a malformed line only rejects that record
+	 */
+	private Flux<ParsedRecord> readLines(Flux<DataBuffer> body) {
+		return StringDecoder.allMimeTypes().decode(body, STRING_TYPE, null, null)
+				.filter(line -> !line.trim().isEmpty()).map(line -> {
+					try {
+						return new ParsedRecord(objectMapper.readTree(line), null);
+					} catch (JsonProcessingException e) {
+						return new ParsedRecord(null, "Malformed JSON: " + e.getOriginalMessage());
+					}
+				});
+	}
+
+	/**
+	 * Validate record
+	 * 
+	 * @return - OutRecord representing the record to send to Splunk, null if it
+	 *         was rejected, is a duplicate or was aggregated
+	 */
+	private OutRecord ingestRecord(ParsedRecord record, BulkIngestResult result) {
+		int index = result.getReceived();
+		result.setReceived(index + 1);
+
+		if (record.error != null) {
+			reject(result, index, record.error);
+			return null;
+		}
+
+		AppReq appReq;
+		try {
+			appReq = objectMapper.treeToValue(record.node, AppReq.class);
+		} catch (JsonProcessingException e) {
+			reject(result, index, "Invalid record: " + e.getOriginalMessage());
+			return null;
+		}
+
+		Set<ConstraintViolation<AppReq>> violations = validator.validate(appReq);
+		if (!violations.isEmpty()) {
+			StringJoiner message = new StringJoiner(", ");
+			for (ConstraintViolation<AppReq> violation : violations)
+				message.add(violation.getPropertyPath() + " " + violation.getMessage());
+			reject(result, index, message.toString());
+			return null;
+		}
+
+		// Retried events already sent are dropped, not rejected
+		if (eventDeduplicator.isDuplicate(appReq)) {
+			result.setDuplicates(result.getDuplicates() + 1);
+			return null;
+		}
+
+		if (appMetricAggregator.add(appReq)) {
+			result.setAggregated(result.getAggregated() + 1);
+			return null;
+		}
+
+		return new OutRecord(index, appReq);
+	}
+
+	private boolean checkCapacity(BulkIngestResult result) {
+		if (result.getReceived() < maxRecords)
+			return true;
+
+		result.setTruncated(true);
+		addError(result, result.getReceived(), "Request exceeds " + maxRecords + " records, remaining records ignored");
+		return false;
+	}
+
+	/**
+	 * Map batch to OutAppReq JSONs and write them as one write per project, so
+	 * each goes to the output partition of its project. Records that are not
+	 * written are forgotten by the deduplicator so their retries are sent
+	 */
+	private void flush(List<OutRecord> batch, BulkIngestResult result) {
+		Map<String, List<OutRecord>> byProject = new LinkedHashMap<>();
+		for (OutRecord outRecord : batch)
+			byProject.computeIfAbsent(outRecord.appReq.getProjectName(), key -> new ArrayList<>()).add(outRecord);
+
+		Set<String> written = new HashSet<>();
+		try {
+			for (Map.Entry<String, List<OutRecord>> project : byProject.entrySet()) {
+				List<String> messages = new ArrayList<>(project.getValue().size());
+				for (OutRecord outRecord : project.getValue()) {
+					String strOutAppReq = stringUtil.mapToString(logHelper.reqHelper(outRecord.appReq));
+					if (strOutAppReq == null) {
+						reject(result, outRecord.index, "Record could not be converted to JSON");
+						eventDeduplicator.forget(outRecord.appReq);
+						continue;
+					}
+					messages.add(strOutAppReq);
+				}
+
+				if (!messages.isEmpty())
+					logHelper.logOutResponses(messages, OutputRouter.APP_METRICS, project.getKey());
+				written.add(project.getKey());
+				result.setAccepted(result.getAccepted() + messages.size());
+			}
+		} catch (RuntimeException e) {
+			for (Map.Entry<String, List<OutRecord>> project : byProject.entrySet()) {
+				if (!written.contains(project.getKey()))
+					project.getValue().forEach(outRecord -> eventDeduplicator.forget(outRecord.appReq));
+			}
+			throw e;
+		}
+	}
+
+	// Records are rejected while reading the body and while a batch is flushed on
+	// the output scheduler, so both lock the result
+	private void reject(BulkIngestResult result, int index, String message) {
+		synchronized (result) {
+			result.setRejected(result.getRejected() + 1);
+			addError(result, index, message);
+		}
+	}
+
+	private void addError(BulkIngestResult result, int index, String message) {
+		synchronized (result) {
+			if (result.getErrors().size() < maxErrors)
+				result.getErrors().add(new RecordError(index, message));
+		}
+	}
+
+	/**
+	 * A record read from the body, or the reason it could not be read
+	 */
+	private static class ParsedRecord {
+		private final JsonNode node;
+		private final String error;
+
+		private ParsedRecord(JsonNode node, String error) {
+			this.node = node;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * A record accepted for Splunk with its position in the request
+	 */
+	private static class OutRecord {
+		private final int index;
+		private final AppReq appReq;
+
+		private OutRecord(int index, AppReq appReq) {
+			this.index = index;
+			this.appReq = appReq;
+		}
+	}
+}
@@ -1,9 +1,17 @@
 package com.loblaw.metrics.service.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +19,7 @@ import com.loblaw.metrics.exception.UnexpectedDatabaseQueryException;
 import com.loblaw.metrics.exception.UnsuccessfulSqlQueryException;
 import com.loblaw.metrics.helper.DatabaseExtractionHelper;
 import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.model.CachedQueryResult;
 import com.loblaw.metrics.model.ScheduleTime;
 import com.loblaw.metrics.service.DbQueryService;
 
@@ -31,6 +40,29 @@ public class DbQueryServiceImpl implements DbQueryService {
 	private static final String SHORT_TERM_QUERY_LOCATION = "db.short-term.query.";
 	private static final String SHORT_TERM_QUERY_TOTAL = "db.short-term.query.total";
 
+	@Value("${db.cache.max-entries:100}")
+	private int cacheMaxEntries;
+
+	@Value("${db.cache.ttl-s:30}")
+	private long defaultCacheTtlS;
+
+	@Value("${db.cache.max-ttl-s:300}")
+	private long maxCacheTtlS;
+
+	// Results of ad hoc queries keyed by normalized SQL, least recently used first
+	private final Map<String, CachedQueryResult> resultCache = new LinkedHashMap<String, CachedQueryResult>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedQueryResult> eldest) {
+			return size() > cacheMaxEntries;
+		}
+	};
+
+	// Ad hoc queries currently running, keyed by normalized SQL
+	private final Map<String, CompletableFuture<CachedQueryResult>> inFlightQueries = new ConcurrentHashMap<>();
+
 	@Override
 	/**
 	 * Execute a query on the connected database and send its results to Splunk
@@ -75,6 +107,116 @@ public class DbQueryServiceImpl implements DbQueryService {
 		return dbQueryResult;
 	}
 
+	/**
+	 * Execute a query on the connected database, serving results of an identical
+	 * query from the cache while they are younger than ttlS. Concurrent identical
+	 * queries share a single execution.
+	 * 
+	 * @param query - String representing the database query to be made
+	 * @param ttlS  - Long representing the seconds the results may be served from
+	 *              the cache, null for the default
+	 * @return - a CachedQueryResult representing the output of the query
+	 */
+	@Override
+	public CachedQueryResult getCachedDatabaseDetails(String query, Long ttlS) {
+		String key = normalizeQuery(query);
+		CachedQueryResult cached;
+
+		synchronized (resultCache) {
+			cached = resultCache.get(key);
+		}
+
+		long ttlMs = TimeUnit.SECONDS.toMillis(getCacheTtlS(ttlS));
+
+		// The age is checked against the ttl of this caller, not the one that cached it
+		if (cached != null && cached.getAgeMs() < ttlMs) {
+			log.debug("Serving query results from cache aged " + cached.getAgeMs() + "ms");
+			return cached.withCacheStatus(CachedQueryResult.HIT);
+		}
+
+		CompletableFuture<CachedQueryResult> execution = new CompletableFuture<>();
+		CompletableFuture<CachedQueryResult> running = inFlightQueries.putIfAbsent(key, execution);
+
+		// Wait on the identical query already started by another caller
+		if (running != null) {
+			log.debug("Joining in-flight database query");
+			try {
+				return running.join().withCacheStatus(CachedQueryResult.COALESCED);
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw e;
+			}
+		}
+
+		try {
+			List<String> results = getDatabaseDetails(query, false);
+			CachedQueryResult result = new CachedQueryResult(Collections.unmodifiableList(results),
+					System.currentTimeMillis(), CachedQueryResult.MISS);
+
+			if (maxCacheTtlS > 0) {
+				synchronized (resultCache) {
+					resultCache.put(key, result);
+				}
+			}
+
+			execution.complete(result);
+			return result;
+		} catch (RuntimeException e) {
+			execution.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightQueries.remove(key, execution);
+		}
+	}
+
+	/**
+	 * Clamp the requested ttlS to the configured maximum
+	 * 
+	 * @param ttlS - Long representing the requested cache time to live in seconds,
+	 *             null for the default
+	 * @return - long representing the cache time to live in seconds
+	 */
+	private long getCacheTtlS(Long ttlS) {
+		if (ttlS == null)
+			return Math.min(defaultCacheTtlS, maxCacheTtlS);
+		return Math.max(0, Math.min(ttlS, maxCacheTtlS));
+	}
+
+	/**
+	 * Normalize query so queries differing only in whitespace or a trailing
+	 * semicolon share a cache entry. String literals are left as is
+	 * 
+	 * @param query - String representing the database query
+	 * @return - String representing the normalized query
+	 */
+	private String normalizeQuery(String query) {
+		StringBuilder normalized = new StringBuilder(query.length());
+		boolean inLiteral = false;
+		boolean pendingSpace = false;
+
+		for (char c : query.trim().toCharArray()) {
+			if (c == '\'')
+				inLiteral = !inLiteral;
+
+			if (!inLiteral && Character.isWhitespace(c)) {
+				pendingSpace = true;
+				continue;
+			}
+
+			if (pendingSpace && normalized.length() > 0)
+				normalized.append(' ');
+			pendingSpace = false;
+			normalized.append(c);
+		}
+
+		int end = normalized.length();
+		while (end > 0 && (normalized.charAt(end - 1) == ';' || normalized.charAt(end - 1) == ' '))
+			end--;
+
+		return normalized.substring(0, end);
+	}
+
 	/**
 	 * On the given long term schedule, update the store build version and execute
 	 * the queries given in the application properties on the connected database and
@@ -1,20 +1,31 @@
 package com.loblaw.metrics.service.impl;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
 import com.loblaw.metrics.config.SmlProperties;
 import com.loblaw.metrics.exception.UnexpectedApplicationHealthException;
 import com.loblaw.metrics.helper.HealthHelper;
+import com.loblaw.metrics.helper.HeartbeatRegistry;
 import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
+import com.loblaw.metrics.model.HealthSnapshot;
 import com.loblaw.metrics.service.HealthMetricService;
-import com.loblaw.metrics.shared.model.AppReq;
-import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
+import com.loblaw.metrics.shared.model.OutAppHealthRes;
 import com.loblaw.metrics.shared.model.OutDataRes;
 import com.loblaw.metrics.shared.util.StringUtil;
 
@@ -45,6 +56,17 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 	private SmlProperties smlProperties;
 	@Autowired
 	private StringUtil stringUtil;
+	@Autowired
+	private HeartbeatRegistry heartbeatRegistry;
+
+	@Value("${application.cache.max-staleness-ms:0}")
+	private long maxStalenessMs;
+
+	// Result of the latest successful probe round, scheduled or on request
+	private volatile HealthSnapshot snapshot;
+
+	// Probe round currently running on behalf of REST calls, if any
+	private final AtomicReference<CompletableFuture<HealthSnapshot>> inFlightProbe = new AtomicReference<>();
 
 	/**
 	 * Get the health status of applications, and log their results
@@ -52,20 +74,92 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 	 * @return - a String representing the application health statuses as a JSON
 	 */
 	public String sendApplicationHealth() {
+		return probeApplicationHealth().getJson();
+	}
+
+	/**
+	 * Get the latest application health snapshot if it is within the configured
+	 * staleness, otherwise probe the applications. Concurrent callers share a
+	 * single probe round.
+	 * 
+	 * @return - a HealthSnapshot representing the application health statuses
+	 */
+	@Override
+	public HealthSnapshot getApplicationHealthSnapshot() {
+		HealthSnapshot current = snapshot;
+
+		if (current != null && current.getAgeMs() <= maxStalenessMs) {
+			log.debug("Serving application health snapshot aged " + current.getAgeMs() + "ms");
+			return current;
+		}
+
+		CompletableFuture<HealthSnapshot> probe = new CompletableFuture<>();
+		while (!inFlightProbe.compareAndSet(null, probe)) {
+			CompletableFuture<HealthSnapshot> running = inFlightProbe.get();
+
+			// Wait on the probe round already started by another caller
+			if (running != null) {
+				log.debug("Joining in-flight application health probe");
+				try {
+					return running.join();
+				} catch (CompletionException e) {
+					if (e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					throw e;
+				}
+			}
+		}
+
+		try {
+			HealthSnapshot result = probeApplicationHealth();
+			probe.complete(result);
+			return result;
+		} catch (RuntimeException e) {
+			probe.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightProbe.compareAndSet(probe, null);
+		}
+	}
+
+	/**
+	 * Probe the applications, log their results and keep them as the latest
+	 * snapshot
+	 * 
+	 * @return - a HealthSnapshot representing the application health statuses
+	 */
+	private HealthSnapshot probeApplicationHealth() {
 		String strAppData = "";
 		try {
-			strAppData = getApplicationHealthJson(APP_HEALTH_METHOD_NAME);
+			OutAppHealthRes outAppHealthRes = buildApplicationHealth(APP_HEALTH_METHOD_NAME);
+			strAppData = stringUtil.mapToString(outAppHealthRes);
 
 			log.debug("Application Health: " + strAppData);
-			int outCount = logHelper.logOutResponse(strAppData);
+			int outCount = logHelper.logOutResponse(strAppData, OutputRouter.APP_HEALTH, null);
 			log.info(String.format("Finished extraction of application health metrics (OC: %d)", outCount));
-			return strAppData;
+
+			snapshot = createSnapshot(outAppHealthRes, strAppData);
+			return snapshot;
 		} catch (Exception e) {
 			log.error("Application Health : Unexpected exception in sendApplicationHealth : {}", e.toString(), e);
 			throw new UnexpectedApplicationHealthException("Error extracting application health from REST call");
 		}
 	}
 
+	/**
+	 * Record health heartbeats pushed by applications, to be merged into the next
+	 * application health emission
+	 * 
+	 * @param heartbeats - List of HealthHeartbeat pushed by applications
+	 * @return - int representing the number of heartbeats recorded
+	 */
+	@Override
+	public int recordHeartbeats(List<HealthHeartbeat> heartbeats) {
+		int recorded = heartbeatRegistry.record(heartbeats);
+		log.debug("Recorded " + recorded + " of " + heartbeats.size() + " application health heartbeats");
+		return recorded;
+	}
+
 	/**
 	 * On a scheduled basis, get the health status of applications, and log their
 	 * results
@@ -76,7 +170,9 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 		log.info(String.format("Starting scheduled extraction of application health (IC: %d)", inCount));
 		String strAppData = "";
 		try {
-			strAppData = getApplicationHealthJson(SCHEDULED_APP_HEATLH_METHOD_NAME);
+			OutAppHealthRes outAppHealthRes = buildApplicationHealth(SCHEDULED_APP_HEATLH_METHOD_NAME);
+			strAppData = stringUtil.mapToString(outAppHealthRes);
+			snapshot = createSnapshot(outAppHealthRes, strAppData);
 		} catch (Exception e) {
 			log.error("Application Health : Unexpected exception in scheduledSendApplicationHealth : {}", e.toString(),
 					e);
@@ -86,53 +182,68 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 			strAppData = stringUtil.mapToString(outDataRes);
 		}
 
-		int outCount = logHelper.logOutResponse(strAppData);
+		int outCount = logHelper.logOutResponse(strAppData, OutputRouter.APP_HEALTH, null);
 		log.info(String.format("Finished scheduled extraction of application health metrics (OC: %d)", outCount));
 		log.debug("Application Health: " + strAppData);
 	}
 
 	/**
-	 * Extracts application health and service status, then returns it as a
-	 * JSON
+	 * Create a snapshot of json, tagged by the application and service statuses
+	 * of outAppHealthRes so unchanged health keeps the same entity tag across
+	 * rounds. The tag is weak since the timestamp and id of json change every
+	 * round while the health it reports is the same
+	 * 
+	 * @param outAppHealthRes - OutAppHealthRes containing application health and
+	 *                        service details
+	 * @param json            - String representing the JSON of outAppHealthRes
+	 * @return - a HealthSnapshot of json
+	 */
+	private HealthSnapshot createSnapshot(OutAppHealthRes outAppHealthRes, String json) {
+		String health = String.valueOf(outAppHealthRes.getAppStatus())
+				+ String.valueOf(outAppHealthRes.getServiceStatus());
+		String etag = "W/\"" + DigestUtils.md5DigestAsHex(health.getBytes(StandardCharsets.UTF_8)) + "\"";
+
+		return new HealthSnapshot(json, etag, System.currentTimeMillis());
+	}
+
+	/**
+	 * Extracts application health and service status
 	 * 
 	 * @param methodName - String representing type of content being extracted
-	 * @return - JSON representation of an OutAppReq containing application health
-	 *         and service details
+	 * @return - an OutAppHealthRes containing application health and service
+	 *         details
 	 */
-	private String getApplicationHealthJson(String methodName) {
-		String serviceStatus = null;
+	private OutAppHealthRes buildApplicationHealth(String methodName) {
+		OutAppHealthRes outAppHealthRes = new OutAppHealthRes();
+		outAppHealthRes.setProjectName(PROJECT_NAME);
 
 		// Start time to calculate processing time
 		long startTime = System.currentTimeMillis();
 
-		AppReq appReq = getApplicationHealth();
-		serviceStatus = healthHelper.getServiceHealth();
+		getApplicationHealth(outAppHealthRes.getAppStatus());
+		outAppHealthRes.getServiceStatus().putAll(healthHelper.getServiceHealth());
 
 		// Calculate time taken to process REST calls and Service status
 		long finishTime = System.currentTimeMillis();
 		long elapsedTime = finishTime - startTime;
 
 		log.debug("Total time for processing all the endpoints is: " + elapsedTime);
-		appReq.setResponseTime((int) elapsedTime);
-		appReq.setMethodName(methodName);
-		appReq.setServiceStatus(serviceStatus);
-
-		OutAppReq outAppReq = logHelper.reqHelper(appReq);
+		outAppHealthRes.setResponseTime((int) elapsedTime);
+		logHelper.updateOutAppHealthRes(outAppHealthRes, methodName);
 
-		return stringUtil.mapToString(outAppReq);
+		return outAppHealthRes;
 	}
 
 	/**
 	 * Iterates through lists of health check end points and extracts their
-	 * application status, HTTP status code, and error messages.
+	 * application status, HTTP status code, and error messages into appStatus,
+	 * followed by applications that push heartbeats.
 	 * 
-	 * @return - a AppReq composed of information extracted from health checks.
+	 * @param appStatus - Map of application name to health to populate
 	 */
-	private AppReq getApplicationHealth() {
-		AppReq appReq = new AppReq();
+	private void getApplicationHealth(Map<String, ApplicationHealth> appStatus) {
 		Integer numWithStatus = 0;
 		Integer numWithoutStatus = 0;
-		String health = "{";
 		// Extracts the number of end points with statuses and without statuses to
 		// iterate through
 		if (env.containsProperty(APPLICATION_ENDPOINT_WITH_STATUS_TOTAL)) {
@@ -151,15 +262,13 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 		List<String> applicationHealthWithStatus = new ArrayList<>();
 		List<String> applicationHealthWithoutStatus = new ArrayList<>();
 
-		appReq.setProjectName(PROJECT_NAME);
-
 		// Iterate through application health end points with statuses
 		for (int i = 1; i <= numWithStatus; i++) {
 			applicationHealthWithStatus.add("with-status." + i);
 		}
 
 		log.info("Starting to extract application health endpoints with statuses");
-		health += healthHelper.extractHealth(applicationHealthWithStatus);
+		appStatus.putAll(healthHelper.extractHealth(applicationHealthWithStatus));
 		log.info("Finished extracting application health endpoints with statuses");
 
 		// Iterate through application health end points without statuses
@@ -168,14 +277,11 @@ public class HealthMetricServiceImpl implements HealthMetricService {
 		}
 
 		log.info("Starting to extract application health endpoints without statuses");
-		health += healthHelper.extractHealth(applicationHealthWithoutStatus);
+		appStatus.putAll(healthHelper.extractHealth(applicationHealthWithoutStatus));
 		log.info("Finished extracting application health endpoints without statuses");
 
-		// Remove extra trailing commas
-		health = health.replaceAll(", $", "");
-		health += "}";
-		appReq.setAppStatus(health);
-
-		return appReq;
+		// Applications only known through pushed heartbeats, or whose heartbeat has
+		// expired and were not probed
+		healthHelper.getHeartbeatHealth().forEach(appStatus::putIfAbsent);
 	}
 }
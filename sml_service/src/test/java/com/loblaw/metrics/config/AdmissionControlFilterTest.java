@@ -0,0 +1,106 @@
+package com.loblaw.metrics.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class AdmissionControlFilterTest {
+	private static final String INGEST_PATH = "/appmetrics";
+	private static final Set<String> PATHS = Collections.singleton(INGEST_PATH);
+	private static final WebFilterChain ADMIT = exchange -> Mono.empty();
+
+	private final CounterInfoService rejectedCounter = new CounterInfoServiceImpl();
+
+	@Test
+	@DisplayName("When a client is over its rate - then reject with 429 and the seconds until its next token")
+	public void filter_clientOverRate_thenRejectWithRetryAfter() {
+		AdmissionControlFilter filter = new AdmissionControlFilter(PATHS, 0, 0, 0.5, 1, 10, 0, 5,
+				rejectedCounter);
+
+		assertNull(filter(filter, "10.0.0.1").getResponse().getStatusCode());
+
+		MockServerWebExchange rejected = filter(filter, "10.0.0.1");
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		assertEquals("2", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(1, rejectedCounter.getInfo().getCounter());
+
+		// Other clients have their own bucket
+		assertNull(filter(filter, "10.0.0.2").getResponse().getStatusCode());
+	}
+
+	@Test
+	@DisplayName("When the global rate rejects a request - then return the client token it took")
+	public void filter_globalOverRate_thenRefundClientToken() throws InterruptedException {
+		AdmissionControlFilter filter = new AdmissionControlFilter(PATHS, 20, 1, 0.001, 2, 10, 0, 5,
+				rejectedCounter);
+
+		assertNull(filter(filter, "10.0.0.1").getResponse().getStatusCode());
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter(filter, "10.0.0.1").getResponse().getStatusCode());
+
+		// The global bucket refills within 50ms, the client bucket would take 1000s
+		Thread.sleep(100);
+		assertNull(filter(filter, "10.0.0.1").getResponse().getStatusCode());
+	}
+
+	@Test
+	@DisplayName("When max-in-flight requests are being processed - then shed new ones until one finishes")
+	public void filter_maxInFlight_thenShedUntilFinished() {
+		AdmissionControlFilter filter = new AdmissionControlFilter(PATHS, 0, 0, 0, 0, 10, 1, 5, rejectedCounter);
+		Sinks.Empty<Void> processing = Sinks.empty();
+
+		Disposable first = filter.filter(exchange("10.0.0.1"), exchange -> processing.asMono()).subscribe();
+
+		MockServerWebExchange shed = filter(filter, "10.0.0.2");
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, shed.getResponse().getStatusCode());
+		assertEquals("5", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+		processing.tryEmitEmpty();
+		first.dispose();
+
+		assertNull(filter(filter, "10.0.0.2").getResponse().getStatusCode());
+	}
+
+	@Test
+	@DisplayName("When a request is not to an ingestion path - then never reject it")
+	public void filter_otherPath_thenAdmit() {
+		AdmissionControlFilter filter = new AdmissionControlFilter(PATHS, 0, 0, 0.001, 1, 10, 0, 5,
+				rejectedCounter);
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/health").remoteAddress(new InetSocketAddress("10.0.0.1", 80)));
+
+		filter.filter(exchange, ADMIT).block();
+		filter.filter(exchange, ADMIT).block();
+
+		assertNull(exchange.getResponse().getStatusCode());
+		assertEquals(0, rejectedCounter.getInfo().getCounter());
+	}
+
+	private MockServerWebExchange filter(AdmissionControlFilter filter, String client) {
+		MockServerWebExchange exchange = exchange(client);
+		filter.filter(exchange, ADMIT).block();
+		return exchange;
+	}
+
+	private MockServerWebExchange exchange(String client) {
+		return MockServerWebExchange
+				.from(MockServerHttpRequest.post(INGEST_PATH).remoteAddress(new InetSocketAddress(client, 80)));
+	}
+}
@@ -0,0 +1,87 @@
+package com.loblaw.metrics.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+public class TokenBucketTest {
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	@DisplayName("When the burst is used up - then return the wait until the next token and admit once it refills")
+	public void tryAcquire_burstUsedUp_thenWaitForRefill() {
+		TokenBucket bucket = new TokenBucket(10, 2);
+		long now = System.nanoTime();
+
+		assertEquals(0, bucket.tryAcquire(now));
+		assertEquals(0, bucket.tryAcquire(now));
+
+		long waitNs = bucket.tryAcquire(now);
+		assertTrue(waitNs > 90 * MS && waitNs <= 100 * MS);
+		assertEquals(0, bucket.tryAcquire(now + 100 * MS));
+	}
+
+	@Test
+	@DisplayName("When the time was read before the bucket was created - then admit with its full burst")
+	public void tryAcquire_timeReadBeforeCreation_thenAdmit() {
+		long now = System.nanoTime();
+		TokenBucket bucket = new TokenBucket(1, 1);
+
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+	}
+
+	@Test
+	@DisplayName("When more permits are taken than tokens held - then borrow them from the refills to come")
+	public void tryAcquire_permitsOverBurst_thenBorrowFromRefills() {
+		TokenBucket bucket = new TokenBucket(1, 1);
+		long now = System.nanoTime();
+
+		assertEquals(0, bucket.tryAcquire(now, 5));
+
+		long waitNs = bucket.tryAcquire(now);
+		assertTrue(waitNs > TimeUnit.SECONDS.toNanos(4) && waitNs <= TimeUnit.SECONDS.toNanos(5));
+	}
+
+	@Test
+	@DisplayName("When a taken token is refunded - then it can be taken again without waiting")
+	public void refund_afterAcquire_thenAdmitAgain() {
+		TokenBucket bucket = new TokenBucket(0.001, 1);
+		long now = System.nanoTime();
+
+		assertEquals(0, bucket.tryAcquire(now));
+		bucket.refund(1);
+
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+	}
+
+	@Test
+	@DisplayName("When tokens are refunded past the capacity - then hold no more than the capacity")
+	public void refund_overCapacity_thenCapAtCapacity() {
+		TokenBucket bucket = new TokenBucket(0.001, 1);
+		long now = System.nanoTime();
+
+		bucket.refund(5);
+
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+	}
+
+	@Test
+	@DisplayName("When a bucket has refilled to its capacity - then it is full again")
+	public void isFull_afterRefill_thenFull() {
+		TokenBucket bucket = new TokenBucket(10, 1);
+		long now = System.nanoTime();
+
+		bucket.tryAcquire(now);
+
+		assertFalse(bucket.isFull(now));
+		assertTrue(bucket.isFull(now + 100 * MS));
+	}
+}
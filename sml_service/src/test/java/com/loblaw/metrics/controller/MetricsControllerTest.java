@@ -0,0 +1,174 @@
+package com.loblaw.metrics.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.loblaw.metrics.config.SmlConfiguration;
+import com.loblaw.metrics.helper.AppMetricAggregator;
+import com.loblaw.metrics.helper.EventDeduplicator;
+import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
+import com.loblaw.metrics.helper.RequestLogger;
+import com.loblaw.metrics.service.AppMetricsService;
+import com.loblaw.metrics.service.ContainerMetricsService;
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.service.DbQueryService;
+import com.loblaw.metrics.service.HealthMetricService;
+import com.loblaw.metrics.service.LogSummaryService;
+import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+import com.loblaw.metrics.shared.SmlSharedConstants;
+import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.util.StringUtil;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { MetricsController.class, StringUtil.class, RequestLogger.class,
+		MetricsControllerTest.ControllerConfig.class })
+public class MetricsControllerTest {
+	@MockBean
+	private LogHelper logHelper;
+	@MockBean
+	private HealthMetricService healthMetricService;
+	@MockBean
+	private AppMetricsService appMetricsService;
+	@MockBean
+	private LogSummaryService logSummaryService;
+	@MockBean
+	private DbQueryService dbQueryService;
+	@MockBean
+	private ContainerMetricsService containerMetricsService;
+	@MockBean
+	private AppMetricAggregator appMetricAggregator;
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	private WebTestClient webTestClient;
+
+	@Configuration
+	@EnableWebFlux
+	static class ControllerConfig implements WebFluxConfigurer {
+		private final SmlConfiguration smlConfiguration = new SmlConfiguration();
+
+		@Autowired
+		private CodecCustomizer binaryCodecCustomizer;
+
+		@Override
+		public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+			binaryCodecCustomizer.customize(configurer);
+		}
+
+		@Bean("in-counter")
+		public CounterInfoService inCounter() {
+			return new CounterInfoServiceImpl();
+		}
+
+		@Bean("duplicate-counter")
+		public CounterInfoService duplicateCounter() {
+			return new CounterInfoServiceImpl();
+		}
+
+		@Bean("output-scheduler")
+		public Scheduler outputScheduler() {
+			return Schedulers.immediate();
+		}
+
+		@Bean("health-scheduler")
+		public Scheduler healthScheduler() {
+			return Schedulers.immediate();
+		}
+
+		@Bean("database-scheduler")
+		public Scheduler databaseScheduler() {
+			return Schedulers.immediate();
+		}
+
+		@Bean
+		public EventDeduplicator eventDeduplicator() {
+			return new EventDeduplicator(60000, 100, new CounterInfoServiceImpl());
+		}
+
+		// Property names in any case are only read if the CBOR decoder takes the
+		// settings of the application ObjectMapper
+		@Bean
+		public ObjectMapper objectMapper() {
+			return new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
+		}
+
+		@Bean
+		public CodecCustomizer binaryCodecCustomizer(ObjectMapper objectMapper) {
+			return smlConfiguration.binaryCodecCustomizer(smlConfiguration.cborDecoder(objectMapper),
+					smlConfiguration.smileDecoder(objectMapper));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		webTestClient = WebTestClient.bindToApplicationContext(applicationContext).build();
+	}
+
+	@Test
+	@DisplayName("When an application metric is sent CBOR encoded - then decode it and send it to Splunk")
+	public void appmetrics_cborBody_thenSendToSplunk() throws Exception {
+		OutAppReq outAppReq = new OutAppReq();
+		outAppReq.setProjectName("CloudStorage");
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(outAppReq);
+
+		Map<String, Object> appReq = new LinkedHashMap<>();
+		appReq.put("projectName", "CloudStorage");
+		appReq.put("METHODNAME", "get");
+		appReq.put("data", "256");
+		byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(appReq);
+
+		webTestClient.post().uri(SmlSharedConstants.APP_METRICS_VER_URL).contentType(MediaType.APPLICATION_CBOR)
+				.bodyValue(cbor).exchange().expectStatus().isEqualTo(HttpStatus.ACCEPTED).expectBody(String.class)
+				.isEqualTo("Application metric successfully sent to Splunk");
+
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_METRICS), eq("CloudStorage"));
+	}
+
+	@Test
+	@DisplayName("When a CBOR application metric misses a required field - then reject it")
+	public void appmetrics_cborBodyMissingData_thenBadRequest() throws Exception {
+		Map<String, Object> appReq = new LinkedHashMap<>();
+		appReq.put("projectName", "CloudStorage");
+		appReq.put("methodName", "get");
+		byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(appReq);
+
+		webTestClient.post().uri(SmlSharedConstants.APP_METRICS_VER_URL).contentType(MediaType.APPLICATION_CBOR)
+				.bodyValue(cbor).exchange().expectStatus().isBadRequest();
+	}
+}
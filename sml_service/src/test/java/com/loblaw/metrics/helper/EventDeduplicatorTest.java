@@ -0,0 +1,99 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+import com.loblaw.metrics.shared.model.AppReq;
+
+public class EventDeduplicatorTest {
+	private final CounterInfoService duplicateCounter = new CounterInfoServiceImpl();
+
+	@Test
+	@DisplayName("When the same request id is seen again - then it is a duplicate and counted")
+	public void isDuplicate_sameRequestId_thenDuplicate() {
+		EventDeduplicator deduplicator = new EventDeduplicator(60000, 100, duplicateCounter);
+
+		assertFalse(deduplicator.isDuplicate(appReq("1")));
+		assertTrue(deduplicator.isDuplicate(appReq("1")));
+		assertFalse(deduplicator.isDuplicate(appReq("2")));
+		assertFalse(deduplicator.isDuplicate(appReq(null)));
+		assertFalse(deduplicator.isDuplicate(appReq(null)));
+		assertEquals(1, duplicateCounter.getInfo().getCounter());
+	}
+
+	@Test
+	@DisplayName("When the window ends - then remember events for one more window and forget them after")
+	public void isDuplicate_windowEnds_thenKeptForOneMoreWindow() throws InterruptedException {
+		EventDeduplicator deduplicator = new EventDeduplicator(100, 100, duplicateCounter);
+		assertFalse(deduplicator.isDuplicate(appReq("1")));
+
+		// The first generation becomes the previous one
+		Thread.sleep(120);
+		assertTrue(deduplicator.isDuplicate(appReq("1")));
+
+		// Both generations are past the window after a quiet period
+		Thread.sleep(250);
+		assertFalse(deduplicator.isDuplicate(appReq("1")));
+	}
+
+	@Test
+	@DisplayName("When a generation holds max-entries events - then roll it and forget the oldest generation")
+	public void isDuplicate_maxEntriesReached_thenRollGenerations() {
+		EventDeduplicator deduplicator = new EventDeduplicator(60000, 2, duplicateCounter);
+
+		assertFalse(deduplicator.isDuplicate(appReq("a")));
+		assertFalse(deduplicator.isDuplicate(appReq("b")));
+		// Rolls, a and b are now in the previous generation
+		assertFalse(deduplicator.isDuplicate(appReq("c")));
+		assertTrue(deduplicator.isDuplicate(appReq("a")));
+		assertFalse(deduplicator.isDuplicate(appReq("d")));
+		// Rolls again, dropping a and b
+		assertFalse(deduplicator.isDuplicate(appReq("e")));
+
+		assertTrue(deduplicator.isDuplicate(appReq("c")));
+		assertFalse(deduplicator.isDuplicate(appReq("a")));
+	}
+
+	@Test
+	@DisplayName("When an event is forgotten - then its retry is not a duplicate and other events still are")
+	public void forget_recordedEvents_thenOnlyForgottenAccepted() {
+		EventDeduplicator deduplicator = new EventDeduplicator(60000, 1000, duplicateCounter);
+		for (int i = 0; i < 500; i++)
+			assertFalse(deduplicator.isDuplicate(appReq(String.valueOf(i))));
+
+		// Remove every other event, moving back the events probed after them
+		for (int i = 0; i < 500; i += 2)
+			deduplicator.forget(appReq(String.valueOf(i)));
+
+		for (int i = 0; i < 500; i++)
+			assertEquals(i % 2 == 1, deduplicator.isDuplicate(appReq(String.valueOf(i))));
+	}
+
+	@Test
+	@DisplayName("When an event is forgotten after its generation rolled - then remove it from the previous generation")
+	public void forget_afterRoll_thenRemovedFromPrevious() {
+		EventDeduplicator deduplicator = new EventDeduplicator(60000, 2, duplicateCounter);
+
+		assertFalse(deduplicator.isDuplicate(appReq("a")));
+		assertFalse(deduplicator.isDuplicate(appReq("b")));
+		// Rolls, a and b are now in the previous generation
+		assertFalse(deduplicator.isDuplicate(appReq("c")));
+		deduplicator.forget(appReq("a"));
+
+		assertFalse(deduplicator.isDuplicate(appReq("a")));
+	}
+
+	private AppReq appReq(String requestId) {
+		AppReq appReq = new AppReq();
+		appReq.setProjectName("CloudStorage");
+		appReq.setMethodName("get");
+		appReq.setRequestId(requestId);
+		return appReq;
+	}
+}
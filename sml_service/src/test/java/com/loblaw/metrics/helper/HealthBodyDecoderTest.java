@@ -0,0 +1,122 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+
+import reactor.core.publisher.Flux;
+
+public class HealthBodyDecoderTest {
+	private static final int MAX_BYTES = 65536;
+	private static final String APPLICATION_NAME = "Pos";
+
+	@Test
+	@DisplayName("When status and error are read - then stop decoding without reading the rest of the body")
+	public void decode_statusAndErrorFound_thenStopEarly() {
+		Flux<DataBuffer> body = Flux.concat(Flux.just(toBuffer("{\"status\":\"DOWN\",\"error\":\"timeout\",")),
+				Flux.error(new IllegalStateException("Body read past status and error")));
+
+		ApplicationHealth actual = HealthBodyDecoder.decode(body, MAX_BYTES, APPLICATION_NAME).block();
+
+		assertEquals("DOWN", actual.getStatus());
+		assertEquals("timeout", actual.getError());
+	}
+
+	@Test
+	@DisplayName("When the status is found before the root object closes - then keep reading until it closes")
+	public void feed_statusOnly_thenNeedMoreInput() throws IOException {
+		HealthBodyDecoder decoder = new HealthBodyDecoder(MAX_BYTES, APPLICATION_NAME);
+
+		assertFalse(decoder.feed(toBuffer("{\"status\":\"UP\",\"components\":{")));
+		assertTrue(decoder.feed(toBuffer("}}")));
+		assertEquals("UP", decoder.getResult().getStatus());
+	}
+
+	@Test
+	@DisplayName("When the body is larger than max-bytes - then stop reading at max-bytes")
+	public void feed_bodyOverMaxBytes_thenStopAtMaxBytes() throws IOException {
+		String head = "{\"status\":\"UP\",\"padding\":\"";
+		HealthBodyDecoder decoder = new HealthBodyDecoder(head.length() + 10, APPLICATION_NAME);
+
+		assertTrue(decoder.feed(toBuffer(head + "0123456789abcdef\",\"error\":\"late\"}")));
+
+		ApplicationHealth actual = decoder.getResult();
+		assertEquals("UP", actual.getStatus());
+		assertNull(actual.getError());
+	}
+
+	@Test
+	@DisplayName("When the error is nested in the details of a component - then use it as the error")
+	public void decode_nestedDetailsError_thenUseDetailsError() {
+		String json = "{\"status\":\"DOWN\",\"components\":{\"db\":{\"status\":\"DOWN\","
+				+ "\"details\":{\"error\":\"Connection refused\"}}}}";
+
+		ApplicationHealth actual = HealthBodyDecoder.decode(toBody(json), MAX_BYTES, APPLICATION_NAME).block();
+
+		assertEquals("DOWN", actual.getStatus());
+		assertEquals("Connection refused", actual.getError());
+	}
+
+	@Test
+	@DisplayName("When both a top level and a nested error are present - then prefer the top level error")
+	public void decode_topLevelAndDetailsError_thenPreferTopLevel() {
+		String json = "{\"details\":{\"error\":\"nested\"},\"error\":\"top\",\"status\":\"DOWN\"}";
+
+		ApplicationHealth actual = HealthBodyDecoder.decode(toBody(json), MAX_BYTES, APPLICATION_NAME).block();
+
+		assertEquals("top", actual.getError());
+	}
+
+	@Test
+	@DisplayName("When the body is malformed JSON - then keep what was read before the malformed part")
+	public void decode_malformedJson_thenKeepFieldsReadSoFar() {
+		ApplicationHealth actual = HealthBodyDecoder
+				.decode(toBody("{\"status\":\"UP\",\"error\" \"missing colon\"}"), MAX_BYTES, APPLICATION_NAME)
+				.block();
+
+		assertEquals("UP", actual.getStatus());
+		assertNull(actual.getError());
+	}
+
+	@Test
+	@DisplayName("When the body is truncated - then return the fields read before it ended")
+	public void decode_truncatedJson_thenReturnFieldsReadSoFar() {
+		ApplicationHealth actual = HealthBodyDecoder
+				.decode(toBody("{\"status\":\"DOWN\",\"components\":{\"db\":{\"sta"), MAX_BYTES, APPLICATION_NAME)
+				.block();
+
+		assertEquals("DOWN", actual.getStatus());
+		assertNull(actual.getError());
+	}
+
+	@Test
+	@DisplayName("When the body is empty - then return an ApplicationHealth without status or error rather than null")
+	public void decode_emptyBody_thenReturnEmptyHealth() {
+		ApplicationHealth actual = HealthBodyDecoder.decode(Flux.empty(), MAX_BYTES, APPLICATION_NAME).block();
+
+		assertNotNull(actual);
+		assertNull(actual.getStatus());
+		assertNull(actual.getError());
+	}
+
+	private Flux<DataBuffer> toBody(String json) {
+		int half = json.length() / 2;
+		return Flux.just(toBuffer(json.substring(0, half)), toBuffer(json.substring(half)));
+	}
+
+	private DataBuffer toBuffer(String json) {
+		return new DefaultDataBufferFactory().wrap(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
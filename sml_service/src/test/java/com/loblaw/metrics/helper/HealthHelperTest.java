@@ -0,0 +1,106 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
+import com.loblaw.metrics.shared.util.RestCallUtil;
+import com.loblaw.metrics.shared.util.ServerUtil;
+import com.loblaw.metrics.shared.util.StringUtil;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { HealthHelper.class, StringUtil.class, HealthHelperTest.HeartbeatConfig.class })
+public class HealthHelperTest {
+	@MockBean
+	private Environment env;
+	@MockBean
+	private WebClient webClient;
+	@MockBean
+	private ServerUtil serverUtil;
+	@MockBean
+	private RestCallUtil restCallUtil;
+	@Autowired
+	private HeartbeatRegistry heartbeatRegistry;
+	@Autowired
+	private HealthHelper healthHelper;
+
+	@Configuration
+	static class HeartbeatConfig {
+		@Bean
+		public HeartbeatRegistry heartbeatRegistry() {
+			return new HeartbeatRegistry(60000, 100);
+		}
+
+		@Bean("health-scheduler")
+		public Scheduler healthScheduler() {
+			return Schedulers.boundedElastic();
+		}
+	}
+
+	@Test
+	@DisplayName("When a probed application has a fresh heartbeat - then report it like a probed application without probing it")
+	public void extractHealth_freshHeartbeat_thenNormaliseWithoutProbing() {
+		heartbeatRegistry.record(Collections.singletonList(heartbeat("delta", "up", null)));
+
+		when(env.containsProperty(anyString())).thenReturn(true);
+		when(env.getProperty("application.endpoint.with-status.1.name")).thenReturn("delta");
+
+		ApplicationHealth actual = healthHelper.extractHealth(Collections.singletonList("with-status.1"))
+				.get("delta");
+
+		assertEquals("UP", actual.getStatus());
+		assertEquals(Integer.valueOf(200), actual.getHttpCode());
+		assertEquals("NA", actual.getError());
+		verify(restCallUtil, never()).getWebClient(anyString(), any(), any(), any(), any(), any());
+	}
+
+	@Test
+	@DisplayName("When heartbeats report an error or an unknown status - then report those applications DOWN")
+	public void getHeartbeatHealth_errorOrUnknownStatus_thenDown() {
+		heartbeatRegistry.record(
+				Arrays.asList(heartbeat("ber", "UP", "Connection refused"), heartbeat("csjs", "STARTING", null)));
+
+		Map<String, ApplicationHealth> actual = healthHelper.getHeartbeatHealth();
+
+		assertEquals("DOWN", actual.get("ber").getStatus());
+		assertEquals("Connection refused", actual.get("ber").getError());
+		assertEquals("DOWN", actual.get("csjs").getStatus());
+		assertEquals("NA", actual.get("csjs").getError());
+		assertEquals(Integer.valueOf(200), actual.get("csjs").getHttpCode());
+	}
+
+	private HealthHeartbeat heartbeat(String applicationName, String status, String error) {
+		HealthHeartbeat heartbeat = new HealthHeartbeat();
+		heartbeat.setApplicationName(applicationName);
+		heartbeat.setStatus(status);
+		heartbeat.setError(error);
+		return heartbeat;
+	}
+}
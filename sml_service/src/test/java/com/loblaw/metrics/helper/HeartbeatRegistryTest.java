@@ -0,0 +1,84 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import com.loblaw.metrics.shared.model.ApplicationHealth;
+import com.loblaw.metrics.shared.model.HealthHeartbeat;
+
+public class HeartbeatRegistryTest {
+	private static final long TTL_MS = 60000;
+
+	@Test
+	@DisplayName("When a heartbeat is within the TTL - then report its status upper cased with a 200 HTTP code")
+	public void getHealth_freshHeartbeat_thenReportHeartbeat() {
+		HeartbeatRegistry registry = new HeartbeatRegistry(TTL_MS, 10);
+
+		assertEquals(1, registry.record(Collections.singletonList(heartbeat("pos", "up", "slow disk"))));
+
+		ApplicationHealth actual = registry.getHealth().get("pos");
+		assertEquals("UP", actual.getStatus());
+		assertEquals(Integer.valueOf(200), actual.getHttpCode());
+		assertEquals("slow disk", actual.getError());
+		assertEquals("UP", registry.getFreshHealth("pos").getStatus());
+	}
+
+	@Test
+	@DisplayName("When the last heartbeat is older than the TTL - then report the application DOWN")
+	public void getHealth_heartbeatOlderThanTtl_thenDown() throws InterruptedException {
+		HeartbeatRegistry registry = new HeartbeatRegistry(10, 10);
+		registry.record(Collections.singletonList(heartbeat("pos", "UP", null)));
+
+		Thread.sleep(50);
+
+		ApplicationHealth actual = registry.getHealth().get("pos");
+		assertEquals("DOWN", actual.getStatus());
+		assertEquals(Integer.valueOf(504), actual.getHttpCode());
+		assertTrue(actual.getError().startsWith("No heartbeat for"));
+		assertNull(registry.getFreshHealth("pos"));
+	}
+
+	@Test
+	@DisplayName("When max-applications are tracked - then drop heartbeats of new applications and keep updating known ones")
+	public void record_maxApplicationsReached_thenDropNewApplications() {
+		HeartbeatRegistry registry = new HeartbeatRegistry(TTL_MS, 2);
+
+		int recorded = registry.record(
+				Arrays.asList(heartbeat("pos", "UP", null), heartbeat("ade", "UP", null), heartbeat("csdf", "UP", null)));
+		assertEquals(2, recorded);
+
+		assertEquals(1, registry.record(Collections.singletonList(heartbeat("pos", "DOWN", null))));
+
+		Map<String, ApplicationHealth> actual = registry.getHealth();
+		assertEquals(2, actual.size());
+		assertFalse(actual.containsKey("csdf"));
+		assertEquals("DOWN", actual.get("pos").getStatus());
+	}
+
+	@Test
+	@DisplayName("When a heartbeat has no application name or status - then drop it")
+	public void record_missingNameOrStatus_thenDropped() {
+		HeartbeatRegistry registry = new HeartbeatRegistry(TTL_MS, 10);
+
+		assertEquals(0, registry.record(Arrays.asList(heartbeat(null, "UP", null), heartbeat("", "UP", null),
+				heartbeat("pos", null, null))));
+		assertTrue(registry.getHealth().isEmpty());
+	}
+
+	private HealthHeartbeat heartbeat(String applicationName, String status, String error) {
+		HealthHeartbeat heartbeat = new HealthHeartbeat();
+		heartbeat.setApplicationName(applicationName);
+		heartbeat.setStatus(status);
+		heartbeat.setError(error);
+		return heartbeat;
+	}
+}
@@ -0,0 +1,88 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+public class IncrementalPageTest {
+	private static final String SUM_COLUMN = "total_amount";
+
+	@Test
+	@DisplayName("When the page is not full - then keep every row and advance to the greatest value")
+	public void finish_pageNotFull_thenKeepEveryRow() {
+		IncrementalPage page = page(10, 1L, 2L, 2L, 3L);
+
+		assertFalse(page.isFull());
+		assertEquals(3L, page.getWatermark());
+		assertEquals(4, page.getRows());
+		assertEquals(new BigDecimal(4), page.getSums().get(SUM_COLUMN));
+	}
+
+	@Test
+	@DisplayName("When a full page ends on rows sharing a value - then leave them to the next page")
+	public void finish_fullPageEndsOnTies_thenHoldBackTies() {
+		IncrementalPage page = page(4, 1L, 2L, 3L, 3L);
+
+		assertTrue(page.isFull());
+		assertEquals(2L, page.getWatermark());
+		assertEquals(2, page.getRows());
+		assertEquals(new BigDecimal(2), page.getSums().get(SUM_COLUMN));
+		assertFalse(page.isSplit());
+	}
+
+	@Test
+	@DisplayName("When every row of a full page shares one value - then keep them so the watermark advances")
+	public void finish_fullPageOfOneValue_thenKeepAndMarkSplit() {
+		IncrementalPage page = page(3, 5L, 5L, 5L);
+
+		assertEquals(5L, page.getWatermark());
+		assertEquals(3, page.getRows());
+		assertTrue(page.isSplit());
+	}
+
+	@Test
+	@DisplayName("When a value is below the value before it - then the page is out of order")
+	public void addRow_valueDecreases_thenNotOrdered() {
+		IncrementalPage page = page(10, 1L, 3L, 2L);
+
+		assertFalse(page.isOrdered());
+	}
+
+	@Test
+	@DisplayName("When the watermark column is a timestamp - then advance to the latest timestamp")
+	public void finish_timestamps_thenAdvanceToLatest() {
+		Timestamp first = Timestamp.valueOf("2021-05-01 10:00:00");
+		Timestamp second = Timestamp.valueOf("2021-05-01 10:00:01");
+
+		IncrementalPage page = page(10, first, second);
+
+		assertTrue(page.isOrdered());
+		assertEquals(second, page.getWatermark());
+	}
+
+	@Test
+	@DisplayName("When no row has a value - then keep the rows without a watermark")
+	public void finish_nullValues_thenNoWatermark() {
+		IncrementalPage page = page(10, null, null);
+
+		assertNull(page.getWatermark());
+		assertEquals(2, page.getRows());
+	}
+
+	private IncrementalPage page(int pageSize, Object... values) {
+		IncrementalPage page = new IncrementalPage(pageSize);
+		for (Object value : values) {
+			page.addRow(value);
+			page.addSum(SUM_COLUMN, BigDecimal.ONE);
+		}
+		page.finish();
+		return page;
+	}
+}
@@ -0,0 +1,175 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+
+public class OutputSpoolTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final CounterInfoService droppedCounter = new CounterInfoServiceImpl();
+	private final List<String> written = new ArrayList<>();
+
+	@Test
+	@DisplayName("When events are spooled - then replay them in order with their type and project and stop spooling")
+	public void replay_spooledEvents_thenWrittenInOrderAndSpoolingEnds() {
+		OutputSpool outputSpool = newSpool(1 << 20);
+		outputSpool.recordFailure(new IllegalStateException("Output unavailable"));
+
+		assertTrue(outputSpool.append(OutputRouter.APP_METRICS, "Pos", "first", 1));
+		assertTrue(outputSpool.append(OutputRouter.DATA, null, "second\nthird", 2));
+		outputSpool.replay();
+
+		assertEquals(2, written.size());
+		assertEquals("appmetrics/Pos/1/first", written.get(0));
+		assertEquals("data/null/2/second\nthird", written.get(1));
+		assertFalse(outputSpool.isSpooling());
+		assertEquals(0, segmentFiles().length);
+	}
+
+	@Test
+	@DisplayName("When an event is appended after replay ended spooling - then spool again so it is replayed")
+	public void append_afterReplayEnded_thenSpoolingAgain() {
+		OutputSpool outputSpool = newSpool(1 << 20);
+		outputSpool.recordFailure(new IllegalStateException("Output unavailable"));
+		outputSpool.append(OutputRouter.DATA, null, "first", 1);
+		outputSpool.replay();
+		assertFalse(outputSpool.isSpooling());
+
+		// A writer that saw isSpooling before replay ended appends anyway
+		assertTrue(outputSpool.append(OutputRouter.DATA, null, "late", 1));
+		assertTrue(outputSpool.isSpooling());
+
+		outputSpool.replay();
+		assertEquals("data/null/1/late", written.get(1));
+	}
+
+	@Test
+	@DisplayName("When the sink refuses an event - then keep it and resume from it on the next replay")
+	public void replay_sinkRefuses_thenResumeFromRefusedEvent() {
+		OutputSpool outputSpool = newSpool(1 << 20);
+		outputSpool.recordFailure(new IllegalStateException("Output unavailable"));
+		outputSpool.append(OutputRouter.DATA, null, "first", 1);
+		outputSpool.append(OutputRouter.DATA, null, "second", 1);
+
+		int[] refuse = { 1 };
+		outputSpool.setSink((eventType, projectName, message, events) -> {
+			if (message.toString().equals("second") && refuse[0]-- > 0)
+				return false;
+			written.add(message.toString());
+			return true;
+		});
+
+		outputSpool.replay();
+		assertEquals(1, written.size());
+		assertTrue(outputSpool.isSpooling());
+
+		outputSpool.replay();
+		assertEquals(2, written.size());
+		assertEquals("second", written.get(1));
+		assertFalse(outputSpool.isSpooling());
+	}
+
+	@Test
+	@DisplayName("When segments are left by the previous run - then replay them on start")
+	public void open_segmentsLeft_thenReplayed() {
+		OutputSpool previousRun = newSpool(1 << 20);
+		previousRun.append(OutputRouter.DATA, null, "first", 1);
+		previousRun.close();
+
+		OutputSpool outputSpool = newSpool(1 << 20);
+		assertTrue(outputSpool.isSpooling());
+
+		outputSpool.replay();
+		assertEquals(1, written.size());
+		assertFalse(outputSpool.isSpooling());
+	}
+
+	@Test
+	@DisplayName("When a record fails its CRC - then replay the records before it and skip the rest of the segment")
+	public void replay_corruptRecord_thenSkipRestOfSegment() throws IOException {
+		OutputSpool previousRun = newSpool(1 << 20);
+		previousRun.append(OutputRouter.DATA, null, "first", 1);
+		previousRun.append(OutputRouter.DATA, null, "second", 1);
+		previousRun.close();
+
+		File segment = segmentFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(file.length() - 1);
+			int last = file.read();
+			file.seek(file.length() - 1);
+			file.write(last ^ 0xff);
+		}
+
+		OutputSpool outputSpool = newSpool(1 << 20);
+		outputSpool.replay();
+
+		assertEquals(1, written.size());
+		assertEquals("data/null/1/first", written.get(0));
+		assertFalse(segment.exists());
+	}
+
+	@Test
+	@DisplayName("When the last record is torn - then replay the records before it")
+	public void replay_tornRecord_thenReplayRecordsBefore() throws IOException {
+		OutputSpool previousRun = newSpool(1 << 20);
+		previousRun.append(OutputRouter.DATA, null, "first", 1);
+		previousRun.append(OutputRouter.DATA, null, "second", 1);
+		previousRun.close();
+
+		File segment = segmentFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		OutputSpool outputSpool = newSpool(1 << 20);
+		outputSpool.replay();
+
+		assertEquals(1, written.size());
+		assertFalse(outputSpool.isSpooling());
+	}
+
+	@Test
+	@DisplayName("When the spool is over max-bytes - then drop and count the events")
+	public void append_overMaxBytes_thenDropAndCount() {
+		OutputSpool outputSpool = newSpool(64);
+
+		assertTrue(outputSpool.append(OutputRouter.DATA, null, "first", 1));
+		assertFalse(outputSpool.append(OutputRouter.DATA, null, "a message too large for the rest of the spool", 3));
+		assertEquals(3, droppedCounter.getInfo().getCounter());
+	}
+
+	private OutputSpool newSpool(long maxBytes) {
+		OutputSpool outputSpool = new OutputSpool();
+		ReflectionTestUtils.setField(outputSpool, "droppedCounter", droppedCounter);
+		ReflectionTestUtils.setField(outputSpool, "enabled", true);
+		ReflectionTestUtils.setField(outputSpool, "dir", folder.getRoot().getPath());
+		ReflectionTestUtils.setField(outputSpool, "segmentBytes", 1L << 20);
+		ReflectionTestUtils.setField(outputSpool, "maxBytes", maxBytes);
+		ReflectionTestUtils.setField(outputSpool, "slowWriteMs", 500L);
+		outputSpool.open();
+		outputSpool.setSink((eventType, projectName, message, events) -> written
+				.add(eventType + "/" + projectName + "/" + events + "/" + message));
+		return outputSpool;
+	}
+
+	private File[] segmentFiles() {
+		return folder.getRoot().listFiles((dir, name) -> name.endsWith(".seg"));
+	}
+}
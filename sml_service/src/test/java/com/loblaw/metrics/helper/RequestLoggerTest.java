@@ -0,0 +1,68 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.loblaw.metrics.service.CounterInfoService;
+import com.loblaw.metrics.service.impl.CounterInfoServiceImpl;
+
+public class RequestLoggerTest {
+	private static final String URL = "/appmetrics";
+
+	private final CounterInfoService inCounter = new CounterInfoServiceImpl();
+
+	@Test
+	@DisplayName("When one request in sample-every is logged - then the decision is made once per request")
+	public void incoming_sampleEvery_thenOneDecisionPerRequest() {
+		RequestLogger requestLogger = newRequestLogger("SUMMARY", 3);
+
+		int logged = 0;
+		for (int i = 0; i < 9; i++) {
+			boolean sampled = requestLogger.incoming(URL, inCounter);
+			// Finishing a request does not move the sample on to the next request
+			requestLogger.finished(URL, sampled, 1);
+			if (sampled)
+				logged++;
+		}
+
+		assertEquals(3, logged);
+	}
+
+	@Test
+	@DisplayName("When every request is sampled - then every incoming request is logged")
+	public void incoming_sampleEveryOne_thenAlwaysLogged() {
+		RequestLogger requestLogger = newRequestLogger("DETAIL", 1);
+
+		assertTrue(requestLogger.incoming(URL, inCounter, "request"));
+		assertTrue(requestLogger.incoming(URL, inCounter));
+	}
+
+	@Test
+	@DisplayName("When an endpoint is OFF - then no request is logged")
+	public void incoming_endpointOff_thenNeverLogged() {
+		MockEnvironment env = new MockEnvironment()
+				.withProperty("application.request-log.endpoints.appmetrics.verbosity", "off");
+		RequestLogger requestLogger = newRequestLogger(env, "SUMMARY", 1);
+
+		assertFalse(requestLogger.incoming(URL, inCounter));
+		assertTrue(requestLogger.incoming("/datatosplunk", inCounter));
+	}
+
+	private RequestLogger newRequestLogger(String verbosity, int sampleEvery) {
+		return newRequestLogger(new MockEnvironment(), verbosity, sampleEvery);
+	}
+
+	private RequestLogger newRequestLogger(MockEnvironment env, String verbosity, int sampleEvery) {
+		RequestLogger requestLogger = new RequestLogger();
+		ReflectionTestUtils.setField(requestLogger, "env", env);
+		ReflectionTestUtils.setField(requestLogger, "defaultVerbosity", verbosity);
+		ReflectionTestUtils.setField(requestLogger, "defaultSampleEvery", sampleEvery);
+		return requestLogger;
+	}
+}
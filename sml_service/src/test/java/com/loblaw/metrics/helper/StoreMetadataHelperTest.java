@@ -0,0 +1,90 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.loblaw.metrics.model.LastRun;
+import com.loblaw.metrics.model.StoreMetadata;
+
+/**
+ * Loads the shared model beans in a context without web scopes, like the
+ * reactive application context, so a bean scope it cannot provide fails here
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { StoreMetadataHelper.class, StoreMetadata.class, LastRun.class })
+public class StoreMetadataHelperTest {
+	@MockBean
+	private JdbcTemplate jdbcTemplate;
+	@MockBean
+	private Environment env;
+	@Autowired
+	private StoreMetadataHelper storeMetadataHelper;
+	@Autowired
+	private StoreMetadata storeMetadata;
+	@Autowired
+	private LastRun lastRun;
+	@Autowired
+	private ApplicationContext context;
+
+	@Before
+	public void setUp() {
+		when(env.getProperty("db.store-build-version.search")).thenReturn("select value from store_preference");
+		when(env.getProperty("db.store-build-version.key")).thenReturn("VALUE");
+		when(env.getProperty("db.store-province.search")).thenReturn("select province_cdpr from address");
+		when(env.getProperty("db.store-province.key")).thenReturn("PROVINCE_CDPR");
+	}
+
+	@Test
+	@DisplayName("When the store metadata is refreshed - then the shared StoreMetadata holds the values looked up")
+	public void refreshStoreMetadata_lookupsSucceed_thenStoreMetadataUpdated() {
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+				.thenReturn("1.2.3 ", "ON");
+
+		storeMetadataHelper.refreshStoreMetadata();
+
+		assertEquals("1.2.3", storeMetadata.getBuildVersion());
+		assertEquals("ON", storeMetadata.getProvince());
+		assertEquals("1.2.3", context.getBean(StoreMetadata.class).getBuildVersion());
+	}
+
+	@Test
+	@DisplayName("When a lookup fails - then keep the value looked up before")
+	public void refreshStoreMetadata_lookupFails_thenKeepPreviousValue() {
+		storeMetadata.setBuildVersion("1.0.0");
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+				.thenThrow(new IllegalStateException("Database unavailable")).thenReturn("QC");
+
+		storeMetadataHelper.refreshStoreMetadata();
+
+		assertEquals("1.0.0", storeMetadata.getBuildVersion());
+		assertEquals("QC", storeMetadata.getProvince());
+	}
+
+	@Test
+	@DisplayName("When the last run is set - then every bean sees the same LastRun")
+	public void lastRun_set_thenSharedSingleton() {
+		lastRun.setLastDbDateTime("2021-05-01 10:00:00");
+
+		assertSame(lastRun, context.getBean(LastRun.class));
+		assertEquals("2021-05-01 10:00:00", context.getBean(LastRun.class).getLastDbDateTime());
+	}
+}
@@ -1,9 +1,11 @@
 package com.loblaw.metrics.helper;
 
+import java.util.StringJoiner;
+
 import org.junit.Ignore;
 
 import com.loblaw.metrics.shared.model.AppReq;
-import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.model.OutAppHealthRes;
 
 @Ignore
 public class TestHelper {
@@ -29,48 +31,43 @@ public class TestHelper {
 	}
 
 	/**
-	 * Create an OutAppReq with appReq's properties, date, format, uuid and storeNum
+	 * Update an OutAppHealthRes with methodName, date, uuid, host, build version, IP
+	 * address and province
 	 * 
-	 * @param appReq       AppReq representing the response to wrap around
-	 * @param dateTime     String representing a date time object
-	 * @param uuid         String representing a unique identifier for the response
-	 * @param host     String representing the store data was extracted from
-	 * @param buildVersion String representing the build version of the server
-	 * @param ipAddress    String representing the server's IP address
-	 * @param province     String representing the server's province
-	 * @return an OutAppReq with fields populated for appReq attributes, dateTime,
-	 *         uniqueId, store number, build version, IP address and province
+	 * @param outAppHealthRes OutAppHealthRes representing the response to update
+	 * @param methodName      String representing name of the method
+	 * @param dateTime        String representing a date time object
+	 * @param uuid            String representing a unique identifier for the
+	 *                        response
+	 * @param host            String representing the store data was extracted from
+	 * @param buildVersion    String representing the build version of the server
+	 * @param ipAddress       String representing the server's IP address
+	 * @param province        String representing the server's province
 	 */
-	public OutAppReq createOutAppReq(AppReq appReq, String dateTime, String uuid, String host, String buildVersion,
-			String ipAddress, String province) {
-		OutAppReq outAppReq = new OutAppReq();
-
-		// Map AppReq attributes to OutAppReq
-		outAppReq.setAppStatus(appReq.getAppStatus());
-		outAppReq.setMethodName(appReq.getMethodName());
-		outAppReq.setProjectName(appReq.getProjectName());
-		outAppReq.setResponseTime(appReq.getResponseTime());
-		outAppReq.setServiceStatus(appReq.getServiceStatus());
-
-		// Set OutAppReq attributes
-		outAppReq.setDateTime(dateTime);
-		outAppReq.setUniqueid(uuid);
-		outAppReq.setHost(host);
-		outAppReq.setBuildVersion(buildVersion);
-		outAppReq.setIpAddress(ipAddress);
-		outAppReq.setProvince(province);
-
-		return outAppReq;
+	public void updateOutAppHealthRes(OutAppHealthRes outAppHealthRes, String methodName, String dateTime,
+			String uuid, String host, String buildVersion, String ipAddress, String province) {
+		outAppHealthRes.setMethodName(methodName);
+		outAppHealthRes.setDateTime(dateTime);
+		outAppHealthRes.setUniqueid(uuid);
+		outAppHealthRes.setHost(host);
+		outAppHealthRes.setBuildVersion(buildVersion);
+		outAppHealthRes.setIpAddress(ipAddress);
+		outAppHealthRes.setProvince(province);
 	}
 
 	/**
-	 * Create the application status JSON with appStatus
+	 * Create the health status JSON object from the statuses, skipping empty ones
 	 * 
-	 * @param appStatus - String representing the list of application health
-	 *                  statuses
-	 * @return = String representing the JSON of an applicaiton status
+	 * @param statuses - String representing lists of application health statuses
+	 * @return - String representing the JSON of the health statuses
 	 */
-	public String createAppStatus(String appStatus) {
-		return String.format("{%s}", appStatus.replaceAll(", $", "").replaceAll("\"", "\\\\\""));
+	public String createHealthStatus(String... statuses) {
+		StringJoiner healthStatus = new StringJoiner(",", "{", "}");
+
+		for (String status : statuses) {
+			if (!status.isEmpty())
+				healthStatus.add(status);
+		}
+		return healthStatus.toString();
 	}
 }
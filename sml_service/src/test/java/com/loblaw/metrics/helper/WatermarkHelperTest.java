@@ -0,0 +1,84 @@
+package com.loblaw.metrics.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loblaw.metrics.model.Watermark;
+import com.loblaw.metrics.shared.util.FileUtil;
+
+public class WatermarkHelperTest {
+	private static final String KEY = "tx_totals";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File watermarkFile;
+
+	@Before
+	public void setUp() {
+		watermarkFile = new File(folder.getRoot(), "db_watermarks.txt");
+	}
+
+	@Test
+	@DisplayName("When a watermark is set - then a new helper reads it back from the watermark file")
+	public void setWatermark_thenReloadedFromFile() {
+		Watermark watermark = new Watermark("42");
+		watermark.setTotalRows(7);
+		watermark.getTotals().put("total_amount", new BigDecimal("12.50"));
+
+		newHelper().setWatermark(KEY, watermark);
+
+		Watermark actual = newHelper().getWatermark(KEY);
+		assertEquals("42", actual.getValue());
+		assertEquals(7, actual.getTotalRows());
+		assertEquals(new BigDecimal("12.50"), actual.getTotals().get("total_amount"));
+	}
+
+	@Test
+	@DisplayName("When a watermark is set - then the file is replaced without leaving its temporary file")
+	public void setWatermark_thenNoTemporaryFileLeft() throws IOException {
+		Files.write(watermarkFile.toPath(), "stale\tnot json".getBytes());
+
+		WatermarkHelper helper = newHelper();
+		helper.setWatermark(KEY, new Watermark("1"));
+		helper.setWatermark(KEY, new Watermark("2"));
+
+		assertEquals(1, Files.readAllLines(watermarkFile.toPath()).size());
+		assertEquals("2", newHelper().getWatermark(KEY).getValue());
+		assertFalse(new File(watermarkFile.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	@DisplayName("When a stored watermark is changed by the caller - then the stored watermark is unchanged")
+	public void getWatermark_copyChanged_thenStoredUnchanged() {
+		WatermarkHelper helper = newHelper();
+		helper.setWatermark(KEY, new Watermark("1"));
+
+		helper.getWatermark(KEY).setValue("2");
+
+		assertEquals("1", helper.getWatermark(KEY).getValue());
+		assertNull(helper.getWatermark("unknown"));
+	}
+
+	private WatermarkHelper newHelper() {
+		WatermarkHelper helper = new WatermarkHelper();
+		ReflectionTestUtils.setField(helper, "fileUtil", new FileUtil());
+		ReflectionTestUtils.setField(helper, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(helper, "watermarkFile", watermarkFile.getPath());
+		return helper;
+	}
+}
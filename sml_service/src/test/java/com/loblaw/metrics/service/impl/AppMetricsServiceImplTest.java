@@ -0,0 +1,225 @@
+package com.loblaw.metrics.service.impl;
+
+import static java.util.Arrays.copyOfRange;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.loblaw.metrics.helper.AppMetricAggregator;
+import com.loblaw.metrics.helper.EventDeduplicator;
+import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
+import com.loblaw.metrics.model.BulkIngestResult;
+import com.loblaw.metrics.shared.SmlSharedConstants;
+import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.util.StringUtil;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { AppMetricsServiceImpl.class, ObjectMapper.class, StringUtil.class,
+		LocalValidatorFactoryBean.class, AppMetricAggregator.class, AppMetricsServiceImplTest.IngestConfig.class })
+@TestPropertySource(properties = { "application.bulk.batch-size=2", "application.aggregation.enabled=true",
+		"application.aggregation.raw-projects=CloudStorage" })
+public class AppMetricsServiceImplTest {
+	@MockBean
+	private LogHelper logHelper;
+	@Autowired
+	private AppMetricsServiceImpl appMetricsServiceImpl;
+
+	private static final String VALID_RECORD = "{\"projectName\":\"CloudStorage\",\"methodName\":\"get\",\"data\":\"256\"}";
+	private static final String RETRIED_RECORD = "{\"projectName\":\"CloudStorage\",\"methodName\":\"get\",\"requestId\":\"18295\",\"data\":\"256\"}";
+	private static final String TIMED_RECORD = "{\"projectName\":\"Pos\",\"methodName\":\"tender\",\"responseCode\":200,\"responseTime\":42,\"data\":\"1\"}";
+	private static final String MISSING_DATA_RECORD = "{\"projectName\":\"CloudStorage\",\"methodName\":\"get\"}";
+
+	@Configuration
+	static class IngestConfig {
+		@Bean("output-scheduler")
+		public Scheduler outputScheduler() {
+			return Schedulers.immediate();
+		}
+
+		@Bean
+		public EventDeduplicator eventDeduplicator() {
+			return new EventDeduplicator(60000, 100, new CounterInfoServiceImpl());
+		}
+
+		@Bean
+		public Jackson2SmileDecoder smileDecoder() {
+			return new Jackson2SmileDecoder();
+		}
+	}
+
+	@Test
+	@DisplayName("When a JSON array of valid records is sent - then send every record to Splunk in batches")
+	public void ingest_validArray_thenAcceptAllInBatches() {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		BulkIngestResult actual = appMetricsServiceImpl
+				.ingest(toBody("[" + VALID_RECORD + "," + VALID_RECORD + "," + VALID_RECORD + "]"),
+						MediaType.APPLICATION_JSON)
+				.block();
+
+		assertEquals(3, actual.getReceived());
+		assertEquals(3, actual.getAccepted());
+		assertEquals(0, actual.getRejected());
+		assertFalse(actual.isTruncated());
+		verify(logHelper, times(2)).logOutResponses(anyList(), eq(OutputRouter.APP_METRICS), eq("CloudStorage"));
+	}
+
+	@Test
+	@DisplayName("When NDJSON records are invalid or malformed - then reject those records by position and accept the rest")
+	public void ingest_ndjsonWithInvalidRecords_thenReportErrorPositions() {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		BulkIngestResult actual = appMetricsServiceImpl.ingest(
+				toBody(VALID_RECORD + "\n" + MISSING_DATA_RECORD + "\n{\"projectName\":\n\n" + VALID_RECORD + "\n"),
+				MediaType.APPLICATION_NDJSON).block();
+
+		assertEquals(4, actual.getReceived());
+		assertEquals(2, actual.getAccepted());
+		assertEquals(2, actual.getRejected());
+		assertEquals(1, actual.getErrors().get(0).getIndex());
+		assertTrue(actual.getErrors().get(0).getMessage().contains("data"));
+		assertEquals(2, actual.getErrors().get(1).getIndex());
+	}
+
+	@Test
+	@DisplayName("When a JSON array is malformed - then keep the records read before it and mark the request truncated")
+	public void ingest_malformedArray_thenTruncate() {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		BulkIngestResult actual = appMetricsServiceImpl.ingest(toBody("[" + VALID_RECORD + ",{\"projectName\""),
+				MediaType.APPLICATION_JSON).block();
+
+		assertEquals(1, actual.getAccepted());
+		assertTrue(actual.isTruncated());
+		assertEquals(1, actual.getErrors().size());
+	}
+
+	@Test
+	@DisplayName("When every record is invalid - then send nothing to Splunk")
+	public void ingest_allInvalid_thenSendNothing() {
+		BulkIngestResult actual = appMetricsServiceImpl
+				.ingest(toBody("[" + MISSING_DATA_RECORD + ", 5]"), MediaType.APPLICATION_JSON).block();
+
+		assertEquals(2, actual.getRejected());
+		assertEquals(0, actual.getAccepted());
+		verify(logHelper, never()).logOutResponses(anyList(), any(), any());
+	}
+
+	@Test
+	@DisplayName("When the same request id is sent again - then send it to Splunk once and count the duplicates")
+	public void ingest_retriedRecords_thenDropDuplicates() {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		BulkIngestResult actual = appMetricsServiceImpl
+				.ingest(toBody(RETRIED_RECORD + "\n" + RETRIED_RECORD + "\n" + RETRIED_RECORD + "\n"),
+						MediaType.APPLICATION_NDJSON)
+				.block();
+
+		assertEquals(3, actual.getReceived());
+		assertEquals(1, actual.getAccepted());
+		assertEquals(2, actual.getDuplicates());
+		assertEquals(0, actual.getRejected());
+	}
+
+	@Test
+	@DisplayName("When a record fails to be written - then send its retry rather than drop it as a duplicate")
+	public void ingest_writeFails_thenAcceptRetry() {
+		String record = RETRIED_RECORD.replace("18295", "18296");
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+		when(logHelper.logOutResponses(anyList(), eq(OutputRouter.APP_METRICS), eq("CloudStorage")))
+				.thenThrow(new IllegalStateException("Output unavailable")).thenReturn(1);
+
+		try {
+			appMetricsServiceImpl.ingest(toBody("[" + record + "]"), MediaType.APPLICATION_JSON).block();
+			fail("Expected the write failure to fail the request");
+		} catch (IllegalStateException e) {
+			assertEquals("Output unavailable", e.getMessage());
+		}
+
+		BulkIngestResult actual = appMetricsServiceImpl.ingest(toBody("[" + record + "]"), MediaType.APPLICATION_JSON)
+				.block();
+
+		assertEquals(1, actual.getAccepted());
+		assertEquals(0, actual.getDuplicates());
+	}
+
+	@Test
+	@DisplayName("When aggregation is enabled - then aggregate records with a response time and send raw projects as is")
+	public void ingest_aggregationEnabled_thenAggregateAllButRawProjects() {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		BulkIngestResult actual = appMetricsServiceImpl.ingest(toBody("[" + TIMED_RECORD + "," + TIMED_RECORD + ","
+				+ VALID_RECORD + ",{\"projectName\":\"CloudStorage\",\"methodName\":\"put\",\"responseTime\":7,\"data\":\"1\"}]"),
+				MediaType.APPLICATION_JSON).block();
+
+		assertEquals(4, actual.getReceived());
+		assertEquals(2, actual.getAggregated());
+		assertEquals(2, actual.getAccepted());
+	}
+
+	@Test
+	@DisplayName("When a Smile array of valid records is sent - then decode and send every record to Splunk")
+	public void ingest_smileArray_thenAcceptAll() throws Exception {
+		when(logHelper.reqHelper(any(AppReq.class))).thenReturn(new OutAppReq());
+
+		ObjectMapper jsonMapper = new ObjectMapper();
+		byte[] smile = new ObjectMapper(new SmileFactory())
+				.writeValueAsBytes(jsonMapper.readTree("[" + VALID_RECORD + "," + VALID_RECORD + "]"));
+
+		BulkIngestResult actual = appMetricsServiceImpl
+				.ingest(toBody(smile), MediaType.parseMediaType(SmlSharedConstants.APPLICATION_SMILE_VALUE)).block();
+
+		assertEquals(2, actual.getReceived());
+		assertEquals(2, actual.getAccepted());
+		assertFalse(actual.isTruncated());
+	}
+
+	private Flux<DataBuffer> toBody(String body) {
+		return toBody(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Split the body in two so records span buffers as they do off the network
+	private Flux<DataBuffer> toBody(byte[] bytes) {
+		int half = bytes.length / 2;
+
+		return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(copyOfRange(bytes, 0, half)),
+				DefaultDataBufferFactory.sharedInstance.wrap(copyOfRange(bytes, half, bytes.length)));
+	}
+}
@@ -8,6 +8,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +29,7 @@ import com.loblaw.metrics.exception.UnexpectedDatabaseQueryException;
 import com.loblaw.metrics.exception.UnsuccessfulSqlQueryException;
 import com.loblaw.metrics.helper.DatabaseExtractionHelper;
 import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.model.CachedQueryResult;
 import com.loblaw.metrics.model.ScheduleTime;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -116,6 +118,65 @@ public class DbQueryServiceImplTest {
 		dbQueryServiceImpl.getDatabaseDetails(query, sendToSplunk);
 	}	
 
+	@Test
+	@DisplayName("When an identical query is repeated within its cache ttl - then serve the results from the cache")
+	public void getCachedDatabaseDetails_repeatedQuery_thenServeFromCache() {
+		String query = "SELECT store_id, count(*) as TOTAL FROM CACHED_TX group by store_id";
+		String reformattedQuery = "  SELECT store_id,  count(*) as TOTAL\n FROM CACHED_TX group by store_id;";
+
+		doAnswer(invocation -> {
+			List<String> queryArgument = invocation.getArgument(0);
+			queryArgument.add("{\"STORE_ID\": 1, \"TOTAL\": 5}");
+			return 200;
+		}).when(databaseExtractionHelper).addQueryResultsToList(anyList(), anyString());
+
+		CachedQueryResult first = dbQueryServiceImpl.getCachedDatabaseDetails(query, 60L);
+		CachedQueryResult second = dbQueryServiceImpl.getCachedDatabaseDetails(reformattedQuery, 60L);
+
+		verify(databaseExtractionHelper, times(1)).addQueryResultsToList(anyList(), anyString());
+		assertEquals(CachedQueryResult.MISS, first.getCacheStatus());
+		assertEquals(CachedQueryResult.HIT, second.getCacheStatus());
+		assertEquals(first.getResults(), second.getResults());
+	}
+
+	@Test
+	@DisplayName("When a cached query is repeated with a shorter cache ttl than its age - then run the query again")
+	public void getCachedDatabaseDetails_repeatedQueryShorterTtl_thenRunQueryAgain() {
+		String query = "SELECT store_id, count(*) as TOTAL FROM SHORT_TTL_TX group by store_id";
+
+		doAnswer(invocation -> {
+			List<String> queryArgument = invocation.getArgument(0);
+			queryArgument.add("{\"STORE_ID\": 1, \"TOTAL\": 5}");
+			return 200;
+		}).when(databaseExtractionHelper).addQueryResultsToList(anyList(), anyString());
+
+		dbQueryServiceImpl.getCachedDatabaseDetails(query, 60L);
+		CachedQueryResult second = dbQueryServiceImpl.getCachedDatabaseDetails(query, 0L);
+		CachedQueryResult third = dbQueryServiceImpl.getCachedDatabaseDetails(query, 60L);
+
+		verify(databaseExtractionHelper, times(2)).addQueryResultsToList(anyList(), anyString());
+		assertEquals(CachedQueryResult.MISS, second.getCacheStatus());
+		assertEquals(CachedQueryResult.HIT, third.getCacheStatus());
+	}
+
+	@Test
+	@DisplayName("When a cached query fails - then do not cache the failure")
+	public void getCachedDatabaseDetails_queryFails_thenRunQueryAgain() {
+		String query = "SELECT invalid_name as name FROM CACHED_TX";
+
+		when(databaseExtractionHelper.addQueryResultsToList(anyList(), anyString())).thenReturn(-206);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				dbQueryServiceImpl.getCachedDatabaseDetails(query, 60L);
+			} catch (UnsuccessfulSqlQueryException e) {
+				// Expected on every attempt
+			}
+		}
+
+		verify(databaseExtractionHelper, times(2)).addQueryResultsToList(anyList(), anyString());
+	}
+
 	@Test
 	@DisplayName("When short term scheduler is run - then extract results and send to Splunk")
 	public void shortTermScheduledDatabase_noExceptions() {
@@ -1,9 +1,12 @@
 package com.loblaw.metrics.service.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,6 +31,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.loblaw.metrics.config.SmlConfiguration;
@@ -35,10 +39,11 @@ import com.loblaw.metrics.config.SmlProperties;
 import com.loblaw.metrics.exception.UnexpectedApplicationHealthException;
 import com.loblaw.metrics.helper.HealthHelper;
 import com.loblaw.metrics.helper.LogHelper;
+import com.loblaw.metrics.helper.OutputRouter;
 import com.loblaw.metrics.helper.TestHelper;
-import com.loblaw.metrics.shared.model.AppReq;
+import com.loblaw.metrics.model.HealthSnapshot;
 import com.loblaw.metrics.shared.model.ApplicationHealth;
-import com.loblaw.metrics.shared.model.OutAppReq;
+import com.loblaw.metrics.shared.model.OutAppHealthRes;
 import com.loblaw.metrics.shared.util.RestCallUtil;
 import com.loblaw.metrics.shared.util.ServerUtil;
 import com.loblaw.metrics.shared.util.WebClientErrorInterface;
@@ -49,7 +54,8 @@ import reactor.core.publisher.Mono;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = { HealthMetricServiceImpl.class, HealthHelper.class, SmlConfiguration.class })
-@TestPropertySource(properties = { "rest-template.timeout.connect=0", "rest-template.timeout.read=0" })
+@TestPropertySource(properties = { "rest-template.timeout.connect=0", "rest-template.timeout.read=0",
+		"application.cache.max-staleness-ms=60000" })
 public class HealthMetricServiceImplTest {
 	@MockBean
 	private SmlProperties smlProperties;
@@ -75,7 +81,7 @@ public class HealthMetricServiceImplTest {
 	private static final String APPLICATION_SERVICE_ENDPOINT_TOTAL = "application.service.total";
 	private static final String PROJECT_NAME = "Application_Health_Metrics";
 	private static final String METHOD_NAME = "app_health";
-	private static final String OUTAPPREQ_FORMAT = "{\"dateTime\":\"%s\",\"uniqueid\":\"%s\",\"projectName\":\"%s\",\"host\":\"%s\",\"province\":\"%s\",\"responseTime\":%d,\"methodName\":\"%s\",\"buildVersion\":\"%s\",\"app_status\":\"%s\",\"IP\":\"%s\",\"service_status\":\"%s\"}";
+	private static final String OUTAPPHEALTHRES_FORMAT = "{\"dateTime\":\"%s\",\"uniqueid\":\"%s\",\"projectName\":\"%s\",\"host\":\"%s\",\"province\":\"%s\",\"responseTime\":%d,\"methodName\":\"%s\",\"buildVersion\":\"%s\",\"app_status\":%s,\"IP\":\"%s\",\"service_status\":%s}";
 	private static final String UP_STATUS = "UP";
 	private static final String DOWN_STATUS = "DOWN";
 	private static final Integer UP_STATUSCODE = Integer.valueOf(200);
@@ -140,7 +146,7 @@ public class HealthMetricServiceImplTest {
 
 		when(logHelper.incInResponse()).thenReturn(1);
 		when(env.containsProperty(anyString())).thenReturn(true);
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 
 		whenApplicationHealth(actuatorHealth, listWithStatus, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
 				APPLICATION_ENDPOINT_WITH_STATUS);
@@ -150,13 +156,13 @@ public class HealthMetricServiceImplTest {
 		whenservice(services, serverProcessCmd);
 
 		doAnswer(invocation -> {
-			AppReq argAppReq = invocation.getArgument(0);
-			OutAppReq resOutAppReq = testHelper.createOutAppReq(argAppReq, date.format(format), uuid, storeNum,
-					buildVersion, ipAddress, province);
-			resOutAppReq.setResponseTime(responseTime);
+			OutAppHealthRes argOutAppHealthRes = invocation.getArgument(0);
+			testHelper.updateOutAppHealthRes(argOutAppHealthRes, invocation.getArgument(1), date.format(format), uuid,
+					storeNum, buildVersion, ipAddress, province);
+			argOutAppHealthRes.setResponseTime(responseTime);
 
-			return resOutAppReq;
-		}).when(logHelper).reqHelper(any(AppReq.class));
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
 
 		healthMetricServiceImpl.scheduledSendApplicationHealth();
 
@@ -169,8 +175,8 @@ public class HealthMetricServiceImplTest {
 				APPLICATION_ENDPOINT_WITHOUT_STATUS);
 		verifyWebClient(actuatorHealth, listStatusNames, listAppHealth);
 		verifyservice(services, serverProcessCmd);
-		verify(logHelper).reqHelper(any(AppReq.class));
-		verify(logHelper).logOutResponse(anyString());
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
 	}
 
 	@Test
@@ -232,17 +238,17 @@ public class HealthMetricServiceImplTest {
 		List<String> serverProcessCmd = new ArrayList<>();
 		serverProcessCmd.add(service1);
 
-		String withStatus = "\"delta\": {\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}, \"ber\": {\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}, ";
-		String withoutStatus = "\"csjs\": {\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}, \"csdf\": {\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}, ";
+		String withStatus = "\"delta\":{\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"},\"ber\":{\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}";
+		String withoutStatus = "\"csjs\":{\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"},\"csdf\":{\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}";
 		String serviceStatus = testHelper
-				.createAppStatus("\"confTCServer\": {\"status\":\"UP\"},\"imzTCServer\": {\"status\":\"DOWN\"}");
+				.createHealthStatus("\"confTCServer\":{\"status\":\"UP\"},\"imzTCServer\":{\"status\":\"DOWN\"}");
 
-		String outAppReqJson = String.format(OUTAPPREQ_FORMAT, date.format(format), uuid, PROJECT_NAME, storeNum,
-				province, responseTime, METHOD_NAME, buildVersion,
-				testHelper.createAppStatus(withStatus + withoutStatus), ipAddress, serviceStatus);
+		String outAppHealthResJson = String.format(OUTAPPHEALTHRES_FORMAT, date.format(format), uuid, PROJECT_NAME,
+				storeNum, province, responseTime, METHOD_NAME, buildVersion,
+				testHelper.createHealthStatus(withStatus, withoutStatus), ipAddress, serviceStatus);
 
 		when(env.containsProperty(anyString())).thenReturn(true);
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 		whenApplicationHealth(actuatorHealth, listWithStatus, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
 				APPLICATION_ENDPOINT_WITH_STATUS);
 		whenApplicationHealth(actuatorHealth, listWithoutStatus, APPLICATION_ENDPOINT_WITHOUT_STATUS_TOTAL,
@@ -251,15 +257,15 @@ public class HealthMetricServiceImplTest {
 		whenservice(services, serverProcessCmd);
 
 		doAnswer(invocation -> {
-			AppReq argAppReq = invocation.getArgument(0);
-			OutAppReq resOutAppReq = testHelper.createOutAppReq(argAppReq, date.format(format), uuid, storeNum,
-					buildVersion, ipAddress, province);
-			resOutAppReq.setResponseTime(responseTime);
+			OutAppHealthRes argOutAppHealthRes = invocation.getArgument(0);
+			testHelper.updateOutAppHealthRes(argOutAppHealthRes, invocation.getArgument(1), date.format(format), uuid,
+					storeNum, buildVersion, ipAddress, province);
+			argOutAppHealthRes.setResponseTime(responseTime);
 
-			return resOutAppReq;
-		}).when(logHelper).reqHelper(any(AppReq.class));
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
 
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 
 		String actual = healthMetricServiceImpl.sendApplicationHealth();
 
@@ -270,16 +276,17 @@ public class HealthMetricServiceImplTest {
 		verifyWebClient(actuatorHealth, listStatusNames, listAppHealth);
 		verifyservice(services, serverProcessCmd);
 		verify(env, times(numContainsProperty)).containsProperty(anyString());
-		verify(logHelper).reqHelper(any(AppReq.class));
-		verify(logHelper).logOutResponse(anyString());
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
 
-		assertEquals(outAppReqJson, actual);
+		assertEquals(outAppHealthResJson, actual);
 	}
 
 	@Test(expected = UnexpectedApplicationHealthException.class)
 	@DisplayName("When the property for total application endpoints is invalid - then catch the exception and throw a UnexpectedApplicationHealthException")
 	public void sendApplicationHealth_parseApplicationEndpointTotalThrowException_thenThrowUnexpectedApplicationHealthException() {
-		when(logHelper.logOutResponse(anyString())).thenThrow(new RuntimeException());
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull()))
+				.thenThrow(new RuntimeException());
 		healthMetricServiceImpl.sendApplicationHealth();
 	}
 
@@ -317,16 +324,16 @@ public class HealthMetricServiceImplTest {
 		List<String> services = new ArrayList<>();
 		List<String> serverProcessCmd = new ArrayList<>();
 
-		String withStatus = "\"delta\": {\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}, \"ber\": {\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}, ";
+		String withStatus = "\"delta\":{\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"},\"ber\":{\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}";
 		String withoutStatus = "";
-		String serviceStatus = testHelper.createAppStatus("");
+		String serviceStatus = testHelper.createHealthStatus();
 
-		String outAppReqJson = String.format(OUTAPPREQ_FORMAT, date.format(format), uuid, PROJECT_NAME, storeNum,
-				province, responseTime, METHOD_NAME, buildVersion,
-				testHelper.createAppStatus(withStatus + withoutStatus), ipAddress, serviceStatus);
+		String outAppHealthResJson = String.format(OUTAPPHEALTHRES_FORMAT, date.format(format), uuid, PROJECT_NAME,
+				storeNum, province, responseTime, METHOD_NAME, buildVersion,
+				testHelper.createHealthStatus(withStatus, withoutStatus), ipAddress, serviceStatus);
 
 		when(env.containsProperty(anyString())).thenReturn(true);
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 		whenApplicationHealth(actuatorHealth, listWithStatus, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
 				APPLICATION_ENDPOINT_WITH_STATUS);
 		whenApplicationHealth(actuatorHealth, listWithoutStatus, APPLICATION_ENDPOINT_WITHOUT_STATUS_TOTAL,
@@ -335,15 +342,15 @@ public class HealthMetricServiceImplTest {
 		whenservice(services, serverProcessCmd);
 
 		doAnswer(invocation -> {
-			AppReq argAppReq = invocation.getArgument(0);
-			OutAppReq resOutAppReq = testHelper.createOutAppReq(argAppReq, date.format(format), uuid, storeNum,
-					buildVersion, ipAddress, province);
-			resOutAppReq.setResponseTime(responseTime);
+			OutAppHealthRes argOutAppHealthRes = invocation.getArgument(0);
+			testHelper.updateOutAppHealthRes(argOutAppHealthRes, invocation.getArgument(1), date.format(format), uuid,
+					storeNum, buildVersion, ipAddress, province);
+			argOutAppHealthRes.setResponseTime(responseTime);
 
-			return resOutAppReq;
-		}).when(logHelper).reqHelper(any(AppReq.class));
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
 
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 
 		String actual = healthMetricServiceImpl.sendApplicationHealth();
 
@@ -354,10 +361,10 @@ public class HealthMetricServiceImplTest {
 		verifyWebClient(actuatorHealth, listStatusNames, listAppHealth);
 		verifyservice(services, serverProcessCmd);
 		verify(env, times(numContainsProperty)).containsProperty(anyString());
-		verify(logHelper).reqHelper(any(AppReq.class));
-		verify(logHelper).logOutResponse(anyString());
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
 
-		assertEquals(outAppReqJson, actual);
+		assertEquals(outAppHealthResJson, actual);
 	}
 
 	@Test
@@ -402,16 +409,16 @@ public class HealthMetricServiceImplTest {
 		serverProcessCmd.add(service1);
 
 		String withStatus = "";
-		String withoutStatus = "\"csjs\": {\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"}, \"csdf\": {\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}, ";
+		String withoutStatus = "\"csjs\":{\"status\":\"DOWN\",\"httpCode\":500,\"error\":\"NA\"},\"csdf\":{\"status\":\"UP\",\"httpCode\":200,\"error\":\"NA\"}";
 		String serviceStatus = testHelper
-				.createAppStatus("\"uaaTCServer\": {\"status\":\"UP\"},\"hwTCServer\": {\"status\":\"DOWN\"}");
+				.createHealthStatus("\"uaaTCServer\":{\"status\":\"UP\"},\"hwTCServer\":{\"status\":\"DOWN\"}");
 
-		String outAppReqJson = String.format(OUTAPPREQ_FORMAT, date.format(format), uuid, PROJECT_NAME, storeNum,
-				province, responseTime, METHOD_NAME, buildVersion,
-				testHelper.createAppStatus(withStatus + withoutStatus), ipAddress, serviceStatus);
+		String outAppHealthResJson = String.format(OUTAPPHEALTHRES_FORMAT, date.format(format), uuid, PROJECT_NAME,
+				storeNum, province, responseTime, METHOD_NAME, buildVersion,
+				testHelper.createHealthStatus(withStatus, withoutStatus), ipAddress, serviceStatus);
 
 		when(env.containsProperty(anyString())).thenReturn(true);
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 		whenApplicationHealth(actuatorHealth, listWithStatus, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
 				APPLICATION_ENDPOINT_WITH_STATUS);
 		whenApplicationHealth(actuatorHealth, listWithoutStatus, APPLICATION_ENDPOINT_WITHOUT_STATUS_TOTAL,
@@ -420,15 +427,15 @@ public class HealthMetricServiceImplTest {
 		whenservice(services, serverProcessCmd);
 
 		doAnswer(invocation -> {
-			AppReq argAppReq = invocation.getArgument(0);
-			OutAppReq resOutAppReq = testHelper.createOutAppReq(argAppReq, date.format(format), uuid, storeNum,
-					buildVersion, ipAddress, province);
-			resOutAppReq.setResponseTime(responseTime);
+			OutAppHealthRes argOutAppHealthRes = invocation.getArgument(0);
+			testHelper.updateOutAppHealthRes(argOutAppHealthRes, invocation.getArgument(1), date.format(format), uuid,
+					storeNum, buildVersion, ipAddress, province);
+			argOutAppHealthRes.setResponseTime(responseTime);
 
-			return resOutAppReq;
-		}).when(logHelper).reqHelper(any(AppReq.class));
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
 
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 
 		String actual = healthMetricServiceImpl.sendApplicationHealth();
 
@@ -439,10 +446,10 @@ public class HealthMetricServiceImplTest {
 		verifyWebClient(actuatorHealth, listStatusNames, listAppHealth);
 		verifyservice(services, serverProcessCmd);
 		verify(env, times(numContainsProperty)).containsProperty(anyString());
-		verify(logHelper).reqHelper(any(AppReq.class));
-		verify(logHelper).logOutResponse(anyString());
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
 
-		assertEquals(outAppReqJson, actual);
+		assertEquals(outAppHealthResJson, actual);
 	}
 
 	@Test
@@ -476,14 +483,14 @@ public class HealthMetricServiceImplTest {
 		String withStatus = "";
 		String withoutStatus = "";
 		String serviceStatus = testHelper
-				.createAppStatus("\"servicesTCServer\": {\"status\":\"UP\"},\"hwTCServer\": {\"status\":\"DOWN\"}");
+				.createHealthStatus("\"servicesTCServer\":{\"status\":\"UP\"},\"hwTCServer\":{\"status\":\"DOWN\"}");
 
-		String outAppReqJson = String.format(OUTAPPREQ_FORMAT, date.format(format), uuid, PROJECT_NAME, storeNum,
-				province, responseTime, METHOD_NAME, buildVersion,
-				testHelper.createAppStatus(withStatus + withoutStatus), ipAddress, serviceStatus);
+		String outAppHealthResJson = String.format(OUTAPPHEALTHRES_FORMAT, date.format(format), uuid, PROJECT_NAME,
+				storeNum, province, responseTime, METHOD_NAME, buildVersion,
+				testHelper.createHealthStatus(withStatus, withoutStatus), ipAddress, serviceStatus);
 
 		when(env.containsProperty(anyString())).thenReturn(true);
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 		whenApplicationHealth(actuatorHealth, listWithStatus, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
 				APPLICATION_ENDPOINT_WITH_STATUS);
 		whenApplicationHealth(actuatorHealth, listWithoutStatus, APPLICATION_ENDPOINT_WITHOUT_STATUS_TOTAL,
@@ -492,15 +499,15 @@ public class HealthMetricServiceImplTest {
 		whenservice(services, serverProcessCmd);
 
 		doAnswer(invocation -> {
-			AppReq argAppReq = invocation.getArgument(0);
-			OutAppReq resOutAppReq = testHelper.createOutAppReq(argAppReq, date.format(format), uuid, storeNum,
-					buildVersion, ipAddress, province);
-			resOutAppReq.setResponseTime(responseTime);
+			OutAppHealthRes argOutAppHealthRes = invocation.getArgument(0);
+			testHelper.updateOutAppHealthRes(argOutAppHealthRes, invocation.getArgument(1), date.format(format), uuid,
+					storeNum, buildVersion, ipAddress, province);
+			argOutAppHealthRes.setResponseTime(responseTime);
 
-			return resOutAppReq;
-		}).when(logHelper).reqHelper(any(AppReq.class));
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
 
-		when(logHelper.logOutResponse(anyString())).thenReturn(1);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
 
 		String actual = healthMetricServiceImpl.sendApplicationHealth();
 
@@ -511,10 +518,43 @@ public class HealthMetricServiceImplTest {
 		verifyWebClient(actuatorHealth, listStatusNames, listAppHealth);
 		verifyservice(services, serverProcessCmd);
 		verify(env, times(numContainsProperty)).containsProperty(anyString());
-		verify(logHelper).reqHelper(any(AppReq.class));
-		verify(logHelper).logOutResponse(anyString());
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
 
-		assertEquals(outAppReqJson, actual);
+		assertEquals(outAppHealthResJson, actual);
+	}
+
+	@Test
+	@DisplayName("When application health is requested twice within the max staleness - then the second request is served from the snapshot")
+	public void getApplicationHealthSnapshot_withinMaxStaleness_thenProbeOnce() {
+		String actuatorHealth = "http://actuator/health/";
+		List<String> emptyList = new ArrayList<>();
+		List<ApplicationHealth> listAppHealth = new ArrayList<>();
+
+		ReflectionTestUtils.setField(healthMetricServiceImpl, "snapshot", null);
+
+		when(env.containsProperty(anyString())).thenReturn(true);
+		when(logHelper.logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull())).thenReturn(1);
+		whenApplicationHealth(actuatorHealth, emptyList, APPLICATION_ENDPOINT_WITH_STATUS_TOTAL,
+				APPLICATION_ENDPOINT_WITH_STATUS);
+		whenApplicationHealth(actuatorHealth, emptyList, APPLICATION_ENDPOINT_WITHOUT_STATUS_TOTAL,
+				APPLICATION_ENDPOINT_WITHOUT_STATUS);
+		whenWebClient(actuatorHealth, emptyList, listAppHealth);
+		whenservice(emptyList, emptyList);
+
+		doAnswer(invocation -> {
+			testHelper.updateOutAppHealthRes(invocation.getArgument(0), invocation.getArgument(1), "2021/04/01 15:31:35",
+					"12345", "3144", "2.10", "127.0.0.1", "ON");
+			return null;
+		}).when(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+
+		HealthSnapshot first = healthMetricServiceImpl.getApplicationHealthSnapshot();
+		HealthSnapshot second = healthMetricServiceImpl.getApplicationHealthSnapshot();
+
+		verify(logHelper).updateOutAppHealthRes(any(OutAppHealthRes.class), anyString());
+		verify(logHelper).logOutResponse(anyString(), eq(OutputRouter.APP_HEALTH), isNull());
+		assertSame(first, second);
+		assertTrue(first.getEtag().startsWith("W/\""));
 	}
 
 	public void whenApplicationHealth(String actuatorHealth, List<String> listStatus, String totalEndpoint,
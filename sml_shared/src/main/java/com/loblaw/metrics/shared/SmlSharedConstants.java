@@ -14,12 +14,18 @@ public class SmlSharedConstants {
 	// URL for metric consuming API
 	public static final String APP_METRICS_URL = "/appmetrics";
 
+	// URL for consuming batches of metrics as a JSON array or NDJSON
+	public static final String APP_METRICS_BULK_URL = "/appmetrics/bulk";
+
 	// URL for metric consuming API with version
 	public static final String APP_METRICS_VER_URL = API_VERSION + APP_METRICS_URL;
 
 	// URL for application health consuming API
 	public static final String APPHEALTH_METRICS_URL = "/apphealthmetrics";
 
+	// URL for application health heartbeats pushed by applications
+	public static final String APPHEALTH_HEARTBEAT_URL = "/apphealthheartbeat";
+
 	// URL for service health consuming API
 	public static final String DATABASE_QUERIES_URL = "/getdbdata";
 
@@ -31,4 +37,7 @@ public class SmlSharedConstants {
 
 	// URL for sending data directly to Splunk
 	public static final String DATA_TO_SPLUNK_URL = "/datatosplunk";
+
+	// Media type of the Jackson Smile binary JSON encoding
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
 }
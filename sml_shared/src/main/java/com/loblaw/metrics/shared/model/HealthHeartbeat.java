@@ -0,0 +1,26 @@
+package com.loblaw.metrics.shared.model;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+/**
+ * Incoming health heartbeat pushed by a monitored application
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HealthHeartbeat {
+	@ApiModelProperty(required = true, value = "String value for application name", name = "applicationName", dataType = "String", example = "ade-service")
+	@JsonAlias("name")
+	@NotNull
+	private String applicationName;
+	@ApiModelProperty(required = true, value = "String value for application status", name = "status", dataType = "String", example = "UP")
+	@NotNull
+	private String status;
+	@ApiModelProperty(value = "String value for error message", name = "error", dataType = "String", example = "Connection refused")
+	private String error;
+}
@@ -0,0 +1,36 @@
+package com.loblaw.metrics.shared.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * POJO to output application and service health, with statuses nested as JSON
+ * objects keyed by application name
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class OutAppHealthRes {
+	private String dateTime;
+	private String uniqueid;
+	private String projectName;
+	private String host;
+	private String province;
+	private Integer responseTime;
+	private String methodName;
+	@JsonProperty("app_status")
+	@JsonInclude(JsonInclude.Include.ALWAYS)
+	private Map<String, ApplicationHealth> appStatus = new LinkedHashMap<>();
+	private String buildVersion;
+	@JsonProperty("IP")
+	private String ipAddress;
+	@JsonProperty("service_status")
+	@JsonInclude(JsonInclude.Include.ALWAYS)
+	private Map<String, ApplicationHealth> serviceStatus = new LinkedHashMap<>();
+}
@@ -0,0 +1,49 @@
+package com.loblaw.metrics.shared.model;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * POJO to output application metrics of one projectName, methodName and
+ * responseCode aggregated over a window
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class OutAppSummaryRes implements Serializable {
+
+	// Default Serial Version UID
+	private static final long serialVersionUID = 1L;
+	private String dateTime;
+	private String uniqueid;
+	private String projectName;
+	private String methodName;
+	private Integer responseCode;
+	private String host;
+	private String province;
+	private String buildVersion;
+	@JsonProperty("IP")
+	private String ipAddress;
+	// Window the events arrived in, epoch milliseconds
+	private Long windowStart;
+	private Long windowEnd;
+	// Response time statistics of the events in milliseconds
+	private Long count;
+	private Long sum;
+	private Integer min;
+	private Integer max;
+	private Double p50;
+	private Double p90;
+	private Double p99;
+	// Latency sketch, bucket index to count, so windows and stores can be merged.
+	// Bucket i holds response times in (gamma^(i-1), gamma^i], zeroCount those <= 0
+	private Double sketchGamma;
+	private Long sketchZeroCount;
+	private Map<Integer, Long> sketch;
+}
@@ -18,6 +18,8 @@ import lombok.NoArgsConstructor;
 public class OutContainerRes {
 	private String dateTime;
 	private String store;
+	private String buildVersion;
+	private String province;
 	private String methodName;
 	@JsonProperty("soft_start_time")
 	private String softStartTime;
@@ -12,5 +12,7 @@ public class OutDataRes {
 	private String dateTime;
 	private String uniqueid;
 	private String store;
+	private String buildVersion;
+	private String province;
 	private String message;
 }
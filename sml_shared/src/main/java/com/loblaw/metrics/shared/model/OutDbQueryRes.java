@@ -1,7 +1,10 @@
 package com.loblaw.metrics.shared.model;
 
+import java.util.List;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 
 import lombok.Data;
 
@@ -12,8 +15,14 @@ public class OutDbQueryRes {
 	private String dateTime;
 	private String uniqueid;
 	private String store;
+	private String buildVersion;
+	private String province;
 	private Integer responseCode;
 	private Integer responseTime;
 	private String methodName; 
-	private String queryResults;	
+	private String queryResults;
+	// Columnar results: column names once, then each row as an array of values
+	private List<String> columns;
+	@JsonRawValue
+	private String rows;
 }
\ No newline at end of file
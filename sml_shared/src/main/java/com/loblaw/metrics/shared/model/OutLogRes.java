@@ -15,6 +15,8 @@ import lombok.NoArgsConstructor;
 public class OutLogRes {
 	private String dateTime;
 	private String store;
+	private String buildVersion;
+	private String province;
 	private String message;
 	private String fileName;
 }
\ No newline at end of file
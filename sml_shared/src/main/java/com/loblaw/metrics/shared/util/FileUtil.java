@@ -3,9 +3,11 @@ package com.loblaw.metrics.shared.util;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +43,41 @@ public class FileUtil {
 		return ret;
 	}
 
+	/**
+	 * Replace the file at filePath with messages separated by newline. The
+	 * messages are written to a temporary file beside it that is then moved over
+	 * it, so a failed write leaves the previous file whole
+	 * 
+	 * @param filePath String representing location to write file
+	 * @param messages List of messages to write to file
+	 * @return int value representing status of the write operation. 1 if messages
+	 *         were successfully written to file. -1 for IOExceptions and -2
+	 *         otherwise.
+	 */
+	public int replaceFile(String filePath, List<String> messages) {
+		Path path = Paths.get(filePath);
+		Path tempPath = Paths.get(filePath + ".tmp");
+		int ret = 0;
+
+		try {
+			Files.write(tempPath, messages);
+			try {
+				Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			ret = 1;
+		} catch (IOException e) {
+			ret = -1;
+			log.error("File Utility : File write exception in replaceFile : {}", e.toString(), e);
+		} catch (Exception e) {
+			ret = -2;
+			log.error("File Utility : Unexpected exception in replaceFile : {}", e.toString(), e);
+		}
+
+		return ret;
+	}
+
 	/**
 	 * Read file located at filePath and add its contents to results
 	 * 